@@ -18,13 +18,14 @@
 package org.apache.abdera.protocol.server.adapters.filesystem;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.abdera.Abdera;
@@ -79,8 +80,7 @@ public class FilesystemAdapter extends ManagedCollectionAdapter {
         if (!entryFile.exists() || !entryFile.isFile())
             throw new RuntimeException();
         try {
-            FileInputStream fis = new FileInputStream(entryFile);
-            Document<Entry> doc = abdera.getParser().parse(fis);
+            Document<Entry> doc = abdera.getParser().parse(entryFile);
             Entry entry = doc.getRoot();
             return entry;
         } catch (Exception e) {
@@ -117,11 +117,14 @@ public class FilesystemAdapter extends ManagedCollectionAdapter {
         addPagingLinks(request, feed, page, length);
         if (offset > files.length)
             return;
+        List<Entry> entries = new ArrayList<Entry>();
         for (int n = offset; n < offset + length && n < files.length; n++) {
             File file = files[n];
-            Entry entry = getEntry(file);
-            feed.addEntry((Entry)entry.clone());
+            // each entry is freshly parsed, so it can be moved into the feed rather than copied
+            Entry entry = getEntry(file).complete();
+            entries.add(entry);
         }
+        feed.addEntries(entries);
     }
 
     public ResponseContext getFeed(RequestContext request) {
@@ -46,25 +46,27 @@ import org.apache.abdera.xpath.XPath;
  */
 public class Abdera {
 
-    /** A static instance of Abdera **/
-    private static Abdera instance;
+    /** Holds the static instance of Abdera, which is created when first requested **/
+    private static final class InstanceHolder {
+        static final Abdera instance = new Abdera();
+    }
 
     /**
      * Get a static instance of the Abdera object.
      */
-    public static synchronized Abdera getInstance() {
-        if (instance == null)
-            instance = new Abdera();
-        return instance;
+    public static Abdera getInstance() {
+        return InstanceHolder.instance;
     }
 
+    // The subcomponents are created lazily. Once created they are read without locking; the lock is only taken while
+    // the first instance of a component is being created.
     private final Configuration config;
-    private Factory factory;
-    private Parser parser;
-    private XPath xpath;
-    private ParserFactory parserFactory;
-    private WriterFactory writerFactory;
-    private Writer writer;
+    private volatile Factory factory;
+    private volatile Parser parser;
+    private volatile XPath xpath;
+    private volatile ParserFactory parserFactory;
+    private volatile WriterFactory writerFactory;
+    private volatile Writer writer;
 
     /**
      * Initialize using the default Abdera Configuration
@@ -134,10 +136,16 @@ public class Abdera {
      * 
      * @return The factory instance
      */
-    public synchronized Factory getFactory() {
-        if (factory == null)
-            factory = newFactory();
-        return factory;
+    public Factory getFactory() {
+        Factory result = factory;
+        if (result == null) {
+            synchronized (this) {
+                result = factory;
+                if (result == null)
+                    factory = result = newFactory();
+            }
+        }
+        return result;
     }
 
     /**
@@ -145,10 +153,16 @@ public class Abdera {
      * 
      * @return The parser instance
      */
-    public synchronized Parser getParser() {
-        if (parser == null)
-            parser = newParser();
-        return parser;
+    public Parser getParser() {
+        Parser result = parser;
+        if (result == null) {
+            synchronized (this) {
+                result = parser;
+                if (result == null)
+                    parser = result = newParser();
+            }
+        }
+        return result;
     }
 
     /**
@@ -156,10 +170,16 @@ public class Abdera {
      * 
      * @return The XPath instance
      */
-    public synchronized XPath getXPath() {
-        if (xpath == null)
-            xpath = newXPath();
-        return xpath;
+    public XPath getXPath() {
+        XPath result = xpath;
+        if (result == null) {
+            synchronized (this) {
+                result = xpath;
+                if (result == null)
+                    xpath = result = newXPath();
+            }
+        }
+        return result;
     }
 
     /**
@@ -168,10 +188,16 @@ public class Abdera {
      * 
      * @return The ParserFactory instance
      */
-    public synchronized ParserFactory getParserFactory() {
-        if (parserFactory == null)
-            parserFactory = newParserFactory();
-        return parserFactory;
+    public ParserFactory getParserFactory() {
+        ParserFactory result = parserFactory;
+        if (result == null) {
+            synchronized (this) {
+                result = parserFactory;
+                if (result == null)
+                    parserFactory = result = newParserFactory();
+            }
+        }
+        return result;
     }
 
     /**
@@ -180,10 +206,16 @@ public class Abdera {
      * 
      * @return The WriterFactory instance
      */
-    public synchronized WriterFactory getWriterFactory() {
-        if (writerFactory == null)
-            writerFactory = newWriterFactory();
-        return writerFactory;
+    public WriterFactory getWriterFactory() {
+        WriterFactory result = writerFactory;
+        if (result == null) {
+            synchronized (this) {
+                result = writerFactory;
+                if (result == null)
+                    writerFactory = result = newWriterFactory();
+            }
+        }
+        return result;
     }
 
     /**
@@ -191,10 +223,16 @@ public class Abdera {
      * 
      * @return The default writer implementation
      */
-    public synchronized Writer getWriter() {
-        if (writer == null)
-            writer = newWriter();
-        return writer;
+    public Writer getWriter() {
+        Writer result = writer;
+        if (result == null) {
+            synchronized (this) {
+                result = writer;
+                if (result == null)
+                    writer = result = newWriter();
+            }
+        }
+        return result;
     }
 
     /**
@@ -18,8 +18,10 @@
 package org.apache.abdera.factory;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.abdera.model.Base;
 import org.apache.abdera.model.Document;
@@ -28,13 +30,17 @@ import org.apache.abdera.model.Element;
 /**
  * A utility implementation of ExtensionFactory used internally by Abdera. It maintains the collection ExtensionFactory
  * instances discovered on the classpath and a cache of Internal-Wrapper mappings.
+ * <p>
+ * The factories are held in an immutable snapshot, together with an index of the namespaces they declare. Lookups read
+ * the current snapshot without locking; addFactory replaces it with a new one.
+ * </p>
  */
 public class ExtensionFactoryMap implements ExtensionFactory {
 
-    private final List<ExtensionFactory> factories;
+    private volatile Snapshot snapshot;
 
     public ExtensionFactoryMap(List<ExtensionFactory> factories) {
-        this.factories = Collections.synchronizedList(factories);
+        this.snapshot = new Snapshot(factories.toArray(new ExtensionFactory[factories.size()]));
     }
 
     @SuppressWarnings("unchecked")
@@ -42,68 +48,82 @@ public class ExtensionFactoryMap implements ExtensionFactory {
         if (internal == null)
             return null;
         T t = null;
-        synchronized (factories) {
-            for (ExtensionFactory factory : factories) {
-                t = (T)factory.getElementWrapper(internal);
-                if (t != null && t != internal) {
-                    return t;
-                }
+        // factories may wrap elements outside of the namespaces they declare, so all of them are asked, in order
+        for (ExtensionFactory factory : snapshot.factories) {
+            t = (T)factory.getElementWrapper(internal);
+            if (t != null && t != internal) {
+                return t;
             }
         }
         return (t != null) ? t : (T)internal;
     }
 
     public String[] getNamespaces() {
-        List<String> ns = new ArrayList<String>();
-        synchronized (factories) {
-            for (ExtensionFactory factory : factories) {
-                String[] namespaces = factory.getNamespaces();
-                for (String uri : namespaces) {
-                    if (!ns.contains(uri))
-                        ns.add(uri);
-                }
-            }
-        }
-        return ns.toArray(new String[ns.size()]);
+        return snapshot.namespaces.clone();
     }
 
     public boolean handlesNamespace(String namespace) {
-        synchronized (factories) {
-            for (ExtensionFactory factory : factories) {
-                if (factory.handlesNamespace(namespace))
-                    return true;
-            }
+        Snapshot snapshot = this.snapshot;
+        if (snapshot.declared.contains(namespace))
+            return true;
+        for (ExtensionFactory factory : snapshot.factories) {
+            if (factory.handlesNamespace(namespace))
+                return true;
         }
         return false;
     }
 
-    public ExtensionFactoryMap addFactory(ExtensionFactory factory) {
-        if (!factories.contains(factory))
-            factories.add(factory);
+    public synchronized ExtensionFactoryMap addFactory(ExtensionFactory factory) {
+        ExtensionFactory[] factories = snapshot.factories;
+        for (ExtensionFactory f : factories) {
+            if (f.equals(factory))
+                return this;
+        }
+        ExtensionFactory[] list = new ExtensionFactory[factories.length + 1];
+        System.arraycopy(factories, 0, list, 0, factories.length);
+        list[factories.length] = factory;
+        snapshot = new Snapshot(list);
         return this;
     }
 
     public <T extends Base> String getMimeType(T base) {
         Element element = base instanceof Element ? (Element)base : ((Document<?>)base).getRoot();
         String namespace = element.getQName().getNamespaceURI();
-        synchronized (factories) {
-            for (ExtensionFactory factory : factories) {
-                if (factory.handlesNamespace(namespace))
-                    return factory.getMimeType(base);
-            }
+        for (ExtensionFactory factory : snapshot.factories) {
+            if (factory.handlesNamespace(namespace))
+                return factory.getMimeType(base);
         }
         return null;
     }
 
     public String[] listExtensionFactories() {
         List<String> names = new ArrayList<String>();
-        synchronized (factories) {
+        for (ExtensionFactory factory : snapshot.factories) {
+            String name = factory.getClass().getName();
+            if (!names.contains(name))
+                names.add(name);
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Immutable view of the registered factories and of the namespaces they declare
+     */
+    private static final class Snapshot {
+        final ExtensionFactory[] factories;
+        final Set<String> declared;
+        final String[] namespaces;
+
+        Snapshot(ExtensionFactory[] factories) {
+            this.factories = factories;
+            Set<String> declared = new LinkedHashSet<String>();
             for (ExtensionFactory factory : factories) {
-                String name = factory.getClass().getName();
-                if (!names.contains(name))
-                    names.add(name);
+                String[] namespaces = factory.getNamespaces();
+                if (namespaces != null)
+                    declared.addAll(Arrays.asList(namespaces));
             }
+            this.declared = declared;
+            this.namespaces = declared.toArray(new String[declared.size()]);
         }
-        return names.toArray(new String[names.size()]);
     }
 }
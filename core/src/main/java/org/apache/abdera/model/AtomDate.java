@@ -20,9 +20,6 @@ package org.apache.abdera.model;
 import java.io.Serializable;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * <p>
@@ -84,7 +81,7 @@ public final class AtomDate implements Cloneable, Serializable {
      * @param value The serialized RFC3339 date/time value
      */
     public AtomDate(String value) {
-        this(parse(value));
+        this(parseTime(value));
     }
 
     /**
@@ -122,7 +119,7 @@ public final class AtomDate implements Cloneable, Serializable {
      * @return the serialized string form of the date as specified by RFC4287
      */
     public String getValue() {
-        return format(value);
+        return format(value.getTime());
     }
 
     /**
@@ -131,7 +128,7 @@ public final class AtomDate implements Cloneable, Serializable {
      * @param value The serialized string form of the date
      */
     public AtomDate setValue(String value) {
-        this.value = parse(value);
+        this.value = new Date(parseTime(value));
         return this;
     }
 
@@ -215,8 +212,7 @@ public final class AtomDate implements Cloneable, Serializable {
             Date d = (Date)obj;
             answer = (this.value.equals(d));
         } else if (obj instanceof String) {
-            Date d = parse((String)obj);
-            answer = (this.value.equals(d));
+            answer = (this.value.getTime() == parseTime((String)obj));
         } else if (obj instanceof Calendar) {
             Calendar c = (Calendar)obj;
             answer = (this.value.equals(c.getTime()));
@@ -236,9 +232,12 @@ public final class AtomDate implements Cloneable, Serializable {
         }
     }
 
-    private static final Pattern PATTERN =
-        Pattern
-            .compile("(\\d{4})(?:-(\\d{2}))?(?:-(\\d{2}))?(?:([Tt])?(?:(\\d{2}))?(?::(\\d{2}))?(?::(\\d{2}))?(?:\\.(\\d{3}))?)?([Zz])?(?:([+-])(\\d{2}):(\\d{2}))?");
+    /**
+     * The maximum number of characters written by {@link #format(long, char[], int)}
+     */
+    public static final int MAX_FORMAT_LENGTH = 30;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
 
     /**
      * Parse the serialized string form into a java.util.Date
@@ -247,28 +246,70 @@ public final class AtomDate implements Cloneable, Serializable {
      * @return The created java.util.Date
      */
     public static Date parse(String date) {
-        Matcher m = PATTERN.matcher(date);
-        if (m.find()) {
-            if (m.group(4) == null)
-                throw new IllegalArgumentException("Invalid Date Format");
-            Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-            int hoff = 0, moff = 0, doff = -1;
-            if (m.group(10) != null) {
-                doff = m.group(10).equals("-") ? 1 : -1;
-                hoff = doff * (m.group(11) != null ? Integer.parseInt(m.group(11)) : 0);
-                moff = doff * (m.group(12) != null ? Integer.parseInt(m.group(12)) : 0);
+        return new Date(parseTime(date));
+    }
+
+    /**
+     * Parse the serialized string form into the number of milliseconds since January 1, 1970, 00:00:00 GMT. The value
+     * is scanned directly, without creating any intermediate objects. Leading whitespace and any characters following
+     * the date are ignored.
+     * 
+     * @param date The serialized string form of the date
+     * @return The number of milliseconds since January 1, 1970, 00:00:00 GMT
+     * @throws IllegalArgumentException if the value is not a valid date
+     */
+    public static long parseTime(CharSequence date) {
+        int len = date.length();
+        int i = 0;
+        while (i < len && Character.isWhitespace(date.charAt(i)))
+            i++;
+        int year = digits(date, i, 4);
+        if (year < 0)
+            throw new IllegalArgumentException("Invalid Date Format");
+        i += 4;
+        int month = 1, day = 1, hour = 0, minute = 0, second = 0, millis = 0, offset = 0, v;
+        if ((v = field(date, i, '-')) >= 0) {
+            month = v;
+            i += 3;
+            if ((v = field(date, i, '-')) >= 0) {
+                day = v;
+                i += 3;
             }
-            c.set(Calendar.YEAR, Integer.parseInt(m.group(1)));
-            c.set(Calendar.MONTH, m.group(2) != null ? Integer.parseInt(m.group(2)) - 1 : 0);
-            c.set(Calendar.DATE, m.group(3) != null ? Integer.parseInt(m.group(3)) : 1);
-            c.set(Calendar.HOUR_OF_DAY, m.group(5) != null ? Integer.parseInt(m.group(5)) + hoff : 0);
-            c.set(Calendar.MINUTE, m.group(6) != null ? Integer.parseInt(m.group(6)) + moff : 0);
-            c.set(Calendar.SECOND, m.group(7) != null ? Integer.parseInt(m.group(7)) : 0);
-            c.set(Calendar.MILLISECOND, m.group(8) != null ? Integer.parseInt(m.group(8)) : 0);
-            return c.getTime();
-        } else {
+        }
+        if (i >= len || (date.charAt(i) != 'T' && date.charAt(i) != 't'))
             throw new IllegalArgumentException("Invalid Date Format");
+        i++;
+        if ((v = digits(date, i, 2)) >= 0) {
+            hour = v;
+            i += 2;
         }
+        if ((v = field(date, i, ':')) >= 0) {
+            minute = v;
+            i += 3;
+        }
+        if ((v = field(date, i, ':')) >= 0) {
+            second = v;
+            i += 3;
+        }
+        if (i + 1 < len && date.charAt(i) == '.' && isDigit(date.charAt(i + 1))) {
+            int scale = 100;
+            for (i++; i < len && isDigit(date.charAt(i)); i++) {
+                millis += (date.charAt(i) - '0') * scale;
+                scale /= 10;
+            }
+        }
+        if (i < len && (date.charAt(i) == 'Z' || date.charAt(i) == 'z'))
+            i++;
+        if (i < len && (date.charAt(i) == '+' || date.charAt(i) == '-') && (v = digits(date, i + 1, 2)) >= 0) {
+            int sign = date.charAt(i) == '-' ? -1 : 1;
+            i += 3;
+            int m = field(date, i, ':');
+            if (m < 0)
+                m = digits(date, i, 2);
+            offset = sign * (v * 60 + Math.max(m, 0));
+        }
+        long days = daysFromCivil(year, month) + day - 1;
+        return days * MILLIS_PER_DAY + hour * 3600000L + (minute - offset) * 60000L + second * 1000L + millis;
     }
 
     /**
@@ -278,44 +319,122 @@ public final class AtomDate implements Cloneable, Serializable {
      * @return The serialized string form of the date
      */
     public static String format(Date date) {
-        StringBuilder sb = new StringBuilder();
-        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-        c.setTime(date);
-        sb.append(c.get(Calendar.YEAR));
-        sb.append('-');
-        int f = c.get(Calendar.MONTH);
-        if (f < 9)
-            sb.append('0');
-        sb.append(f + 1);
-        sb.append('-');
-        f = c.get(Calendar.DATE);
-        if (f < 10)
-            sb.append('0');
-        sb.append(f);
-        sb.append('T');
-        f = c.get(Calendar.HOUR_OF_DAY);
-        if (f < 10)
-            sb.append('0');
-        sb.append(f);
-        sb.append(':');
-        f = c.get(Calendar.MINUTE);
-        if (f < 10)
-            sb.append('0');
-        sb.append(f);
-        sb.append(':');
-        f = c.get(Calendar.SECOND);
-        if (f < 10)
-            sb.append('0');
-        sb.append(f);
-        sb.append('.');
-        f = c.get(Calendar.MILLISECOND);
-        if (f < 100)
-            sb.append('0');
-        if (f < 10)
-            sb.append('0');
-        sb.append(f);
-        sb.append('Z');
-        return sb.toString();
+        return format(date.getTime());
+    }
+
+    /**
+     * Create the serialized string form from the number of milliseconds since January 1, 1970, 00:00:00 GMT
+     * 
+     * @param time The number of milliseconds since January 1, 1970, 00:00:00 GMT
+     * @return The serialized string form of the date
+     */
+    public static String format(long time) {
+        char[] buf = new char[MAX_FORMAT_LENGTH];
+        return new String(buf, 0, format(time, buf, 0));
+    }
+
+    /**
+     * Write the serialized string form of the number of milliseconds since January 1, 1970, 00:00:00 GMT into the given
+     * buffer, which must have room for at least {@link #MAX_FORMAT_LENGTH} characters. Dates between the years 0 and
+     * 9999 always take 24 characters (e.g. 2003-12-13T18:30:02.250Z).
+     * 
+     * @param time The number of milliseconds since January 1, 1970, 00:00:00 GMT
+     * @param buf The buffer to write to
+     * @param offset The position in the buffer at which to start writing
+     * @return The position in the buffer following the last character written
+     */
+    public static int format(long time, char[] buf, int offset) {
+        long days = floorDiv(time, MILLIS_PER_DAY);
+        int millis = (int)(time - days * MILLIS_PER_DAY);
+        // civil date from days since the epoch in the proleptic Gregorian calendar
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int)(doy - (153 * mp + 2) / 5 + 1);
+        int month = (int)(mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        int i = offset;
+        if (year >= 0 && year <= 9999) {
+            i = pad(buf, i, (int)year, 4);
+        } else {
+            String y = Long.toString(year);
+            y.getChars(0, y.length(), buf, i);
+            i += y.length();
+        }
+        buf[i++] = '-';
+        i = pad(buf, i, month, 2);
+        buf[i++] = '-';
+        i = pad(buf, i, day, 2);
+        buf[i++] = 'T';
+        i = pad(buf, i, millis / 3600000, 2);
+        buf[i++] = ':';
+        i = pad(buf, i, millis / 60000 % 60, 2);
+        buf[i++] = ':';
+        i = pad(buf, i, millis / 1000 % 60, 2);
+        buf[i++] = '.';
+        i = pad(buf, i, millis % 1000, 3);
+        buf[i++] = 'Z';
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Read count decimal digits starting at pos. Returns -1 if there are not enough digits
+     */
+    private static int digits(CharSequence s, int pos, int count) {
+        if (pos + count > s.length())
+            return -1;
+        int v = 0;
+        for (int i = pos; i < pos + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c))
+                return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    /**
+     * Read a two digit field preceded by the given separator. Returns -1 if there is no such field at pos
+     */
+    private static int field(CharSequence s, int pos, char separator) {
+        return pos < s.length() && s.charAt(pos) == separator ? digits(s, pos + 1, 2) : -1;
+    }
+
+    private static int pad(char[] buf, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            buf[i] = (char)('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && ((x ^ y) < 0)) ? q - 1 : q;
+    }
+
+    /**
+     * Days since the epoch of the first day of the given month in the proleptic Gregorian calendar. Months outside the
+     * range 1-12 roll over into the adjacent years.
+     */
+    private static long daysFromCivil(long year, int month) {
+        long y = year + floorDiv(month - 1, 12);
+        int m = (int)(month - 1 - floorDiv(month - 1, 12) * 12) + 1;
+        if (m <= 2)
+            y--;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
     }
 
     /**
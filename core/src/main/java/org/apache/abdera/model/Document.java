@@ -186,4 +186,21 @@ public interface Document<T extends Element> extends Base, Serializable {
      * Get the XMLVersion used by this document
      */
     XMLVersion getXmlVersion();
+
+    /**
+     * Fully parse the document, release the underlying parser and make the document read-only. Any subsequent attempt
+     * to modify the document or its elements through the Abdera model will fail, and once safely published the
+     * document can be read by any number of threads through the Abdera model without synchronization (values that
+     * are cached on first read are published safely). Use clone() to obtain a modifiable copy.
+     * <p>
+     * Freezing is enforced by the Abdera implementation classes only. Mutators of the underlying object model that
+     * they do not override, e.g. inserting siblings through the Axiom OMNode API or detaching text nodes, are not
+     * checked and must not be used on a frozen document.
+     */
+    Document<T> freeze();
+
+    /**
+     * Return true if the document has been frozen
+     */
+    boolean isFrozen();
 }
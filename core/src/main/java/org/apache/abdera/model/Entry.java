@@ -1036,4 +1036,24 @@ public interface Entry extends ExtensibleElement {
     IRI getSelfLinkResolvedHref();
 
     Control addControl();
+
+    /**
+     * Sets whether or not the serialized form of this entry should be cached. While caching is enabled, writers that
+     * support it reuse the bytes produced the last time the entry was written in the same namespace context, until the
+     * entry or any of its descendants is modified. Enabling the cache does not modify the entry, so it may be used
+     * with frozen documents.
+     * <p>
+     * Only changes made through the Abdera model discard the cached form. Changes made directly through the underlying
+     * object model, e.g. inserting siblings through the Axiom OMNode API, setting the value of an OMAttribute or
+     * detaching text nodes, are not detected. After such a change, call setSerializationCached(false) to discard the
+     * stale form before the entry is written again.
+     * 
+     * @param cached true if the serialized form of this entry should be cached
+     */
+    Entry setSerializationCached(boolean cached);
+
+    /**
+     * Returns true if the serialized form of this entry is cached
+     */
+    boolean isSerializationCached();
 }
@@ -129,6 +129,22 @@ public interface Feed extends Source {
      */
     Feed insertEntry(Entry entry);
 
+    /**
+     * Adds the given Entries to the <i>end</i> of the Feeds collection of entries, in iteration order. Equivalent to
+     * calling addEntry for each Entry, but performed as a single operation on the feed.
+     * 
+     * @param entries The atom:entry elements to add
+     */
+    Feed addEntries(Iterable<Entry> entries);
+
+    /**
+     * Adds the given Entries to the <i>start</i> of the Feeds collection of entries. The entries keep their iteration
+     * order and precede any entries already in the feed.
+     * 
+     * @param entries The atom:entry elements to insert
+     */
+    Feed insertEntries(Iterable<Entry> entries);
+
     /**
      * Adds a new Entry to the <i>start</i> of the Feeds collection of entries
      * 
@@ -163,7 +179,9 @@ public interface Feed extends Source {
     Feed sortEntries(Comparator<Entry> comparator);
 
     /**
-     * Retrieves the first entry in the feed with the given atom:id value
+     * Retrieves the first entry in the feed with the given atom:id value. Implementations may index the entries by id
+     * and keep the index up to date through the Abdera model only: an entry inserted directly through the underlying
+     * object model (e.g. with the Axiom OMNode insertSiblingAfter or insertSiblingBefore methods) may not be found.
      * 
      * @param id The id to retrieve
      * @return The matching atom:entry
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.parser;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
+
+import org.apache.abdera.model.Document;
+import org.apache.abdera.model.Element;
+
+/**
+ * A parse that is fed the bytes of a document as they arrive rather than pulling them from a blocking InputStream.
+ * This allows a single thread to service many slow connections: write whatever bytes are available, and call end() once
+ * the input is exhausted. Writing never blocks waiting for input. Once end() has been called the Future completes
+ * with the parsed Document, or with a ParseException if the parse failed.
+ * 
+ * <pre>
+ * AsyncParse&lt;Feed&gt; parse = parser.parseAsync(base, options, listener);
+ * while (channel.read(buf) != -1) {
+ *     buf.flip();
+ *     parse.write(buf);
+ *     buf.clear();
+ * }
+ * parse.end();
+ * </pre>
+ */
+public interface AsyncParse<T extends Element> extends Future<Document<T>> {
+
+    /**
+     * Append the remaining bytes of the buffer to the document
+     * 
+     * @param buf The bytes to append
+     * @throws IllegalStateException if end() has already been called or the parse was cancelled
+     */
+    void write(ByteBuffer buf);
+
+    /**
+     * Append bytes to the document
+     * 
+     * @param buf The bytes to append
+     * @param off The offset of the first byte to append
+     * @param len The number of bytes to append
+     * @throws IllegalStateException if end() has already been called or the parse was cancelled
+     */
+    void write(byte[] buf, int off, int len);
+
+    /**
+     * Signal that the complete document has been written. Completes the parse.
+     */
+    void end();
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.parser;
+
+import org.apache.abdera.model.Document;
+import org.apache.abdera.model.Element;
+import org.apache.abdera.model.Entry;
+
+/**
+ * Receives notifications from an AsyncParse. Notifications are delivered on the thread that writes to, or ends, the
+ * AsyncParse, after the call has finished its own work and without any lock held, so listeners may call cancel() or
+ * get(). Note that get() blocks until end() has been called, so it must not be called from onEntry during write().
+ */
+public interface AsyncParseListener<T extends Element> {
+
+    /**
+     * Called for each top-level entry of a feed document. Parsers that can recognize entries while the document is
+     * still arriving call this as soon as each entry is complete; others call it once the document has been parsed.
+     * The entry normally belongs to the Document that is eventually returned, so it must not be detached. If a parser
+     * that reported entries early has to fall back to parsing the whole document again, it reports every entry of
+     * the reparsed document once more; the entries reported earlier then do not belong to the returned Document.
+     */
+    void onEntry(Entry entry);
+
+    /**
+     * Called once the document has been parsed
+     */
+    void onComplete(Document<T> document);
+
+    /**
+     * Called if the parse fails
+     */
+    void onError(ParseException e);
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.parser;
+
+import java.util.Iterator;
+
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.model.Feed;
+
+/**
+ * Iterates over the entries of a parsed document one at a time. Implementations may parse the underlying stream
+ * incrementally and release each entry once the iterator advances past it, allowing arbitrarily large feeds to be
+ * processed in bounded memory.
+ * 
+ * <pre>
+ *   EntryIterator i = parser.parseEntries(in);
+ *   try {
+ *     Feed feed = i.getFeed();
+ *     while (i.hasNext()) {
+ *       Entry entry = i.next();
+ *       ...
+ *     }
+ *   } finally {
+ *     i.close();
+ *   }
+ * </pre>
+ * 
+ * An Entry returned by next() is only guaranteed to remain attached to its parent Feed until the next call to
+ * hasNext() or next(). Callers that need to keep an entry beyond that point should clone it.
+ */
+public interface EntryIterator extends Iterator<Entry> {
+
+    /**
+     * Returns the Feed containing the feed-level metadata parsed so far, or null if the parsed document is not a Feed.
+     * Entries that have already been iterated over are not retained by the returned Feed.
+     */
+    Feed getFeed();
+
+    /**
+     * Stop parsing and release the resources held by the iterator
+     */
+    void close();
+
+}
@@ -17,9 +17,12 @@
  */
 package org.apache.abdera.parser;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ExecutorService;
 
 import javax.xml.stream.XMLStreamReader;
 
@@ -186,6 +189,136 @@ public interface Parser {
      */
     <T extends Element> Document<T> parse(ReadableByteChannel buf, ParserOptions options) throws ParseException;
 
+    /**
+     * Parse the file using the default options. Large files are memory mapped rather than read through a stream.
+     * 
+     * @param file The file to parse
+     * @return The parsed Abdera Document
+     * @throws ParseException if the parse failed
+     */
+    <T extends Element> Document<T> parse(File file) throws ParseException;
+
+    /**
+     * Parse the file using the specified Parse options. Large files are memory mapped rather than read through a
+     * stream.
+     * 
+     * @param file The file to parse
+     * @param options The Parse Options
+     * @return The parsed Abdera Document
+     * @throws ParseException if the parse failed
+     */
+    <T extends Element> Document<T> parse(File file, ParserOptions options) throws ParseException;
+
+    /**
+     * Parse the file using the specified Parse options. The specified Base URI is used to resolve relative references
+     * contained in the document. Large files are memory mapped rather than read through a stream.
+     * 
+     * @param file The file to parse
+     * @param base The Base URI of the document
+     * @param options The Parse Options
+     * @return The parsed Abdera Document
+     * @throws ParseException if the parse failed
+     */
+    <T extends Element> Document<T> parse(File file, String base, ParserOptions options) throws ParseException;
+
+    /**
+     * Parse the remaining bytes of the buffer using the default options. The position of the buffer is not changed. The
+     * buffer must not be modified while the returned Document is in use, as the document is built lazily.
+     * 
+     * @param buf The ByteBuffer to parse
+     * @return The parsed Abdera Document
+     * @throws ParseException if the parse failed
+     */
+    <T extends Element> Document<T> parse(ByteBuffer buf) throws ParseException;
+
+    /**
+     * Parse the remaining bytes of the buffer using the specified Parse options. The position of the buffer is not
+     * changed. The buffer must not be modified while the returned Document is in use, as the document is built lazily.
+     * 
+     * @param buf The ByteBuffer to parse
+     * @param options The Parse Options
+     * @return The parsed Abdera Document
+     * @throws ParseException if the parse failed
+     */
+    <T extends Element> Document<T> parse(ByteBuffer buf, ParserOptions options) throws ParseException;
+
+    /**
+     * Parse the remaining bytes of the buffer using the specified Parse options. The specified Base URI is used to
+     * resolve relative references contained in the document. The position of the buffer is not changed. The buffer must
+     * not be modified while the returned Document is in use, as the document is built lazily.
+     * 
+     * @param buf The ByteBuffer to parse
+     * @param base The Base URI of the document
+     * @param options The Parse Options
+     * @return The parsed Abdera Document
+     * @throws ParseException if the parse failed
+     */
+    <T extends Element> Document<T> parse(ByteBuffer buf, String base, ParserOptions options) throws ParseException;
+
+    /**
+     * Parse the input stream as a sequence of entries using the default character set encoding (UTF-8). Each Entry is
+     * released once the returned iterator advances past it.
+     *
+     * @param in The input stream to parse
+     * @return An iterator over the entries of the parsed document
+     * @throws ParseException if the parse failed
+     */
+    EntryIterator parseEntries(InputStream in) throws ParseException;
+
+    /**
+     * Parse the input stream as a sequence of entries using the specified Parse options. Each Entry is released once
+     * the returned iterator advances past it.
+     *
+     * @param in The input stream to parse
+     * @param options The Parse Options
+     * @return An iterator over the entries of the parsed document
+     * @throws ParseException if the parse failed
+     */
+    EntryIterator parseEntries(InputStream in, ParserOptions options) throws ParseException;
+
+    /**
+     * Parse the input stream as a sequence of entries using the specified Parse options. The specified Base URI is
+     * used to resolve relative references contained in the document. Each Entry is released once the returned
+     * iterator advances past it.
+     *
+     * @param in The input stream to parse
+     * @param base The Base URI of the document
+     * @param options The Parse Options
+     * @return An iterator over the entries of the parsed document
+     * @throws ParseException if the parse failed
+     */
+    EntryIterator parseEntries(InputStream in, String base, ParserOptions options) throws ParseException;
+
+    /**
+     * Parse the input stream, splitting a large feed document at its top-level entries and parsing the entries
+     * concurrently using the given executor. The entries are reassembled into the Feed in document order. The complete
+     * document is read into memory before parsing. Documents that cannot be split (such as non-feed documents or
+     * documents in a character encoding that is not ASCII compatible) are parsed normally.
+     *
+     * @param in The input stream to parse
+     * @param base The Base URI of the document
+     * @param options The Parse Options
+     * @param executor The executor used to parse the entries, or null to use a shared pool of daemon threads, one per
+     *            available processor
+     * @return The parsed Abdera Document
+     * @throws ParseException if the parse failed
+     */
+    <T extends Element> Document<T> parseParallel(InputStream in,
+                                                  String base,
+                                                  ParserOptions options,
+                                                  ExecutorService executor) throws ParseException;
+
+    /**
+     * Start a parse that is fed the bytes of the document as they arrive, see {@link AsyncParse}. The character set
+     * encoding is detected from the document unless specified by the options.
+     * 
+     * @param base The Base URI of the document
+     * @param options The Parse Options
+     * @param listener Notified of entries as they are parsed and of the outcome of the parse, may be null
+     * @return The AsyncParse to write the document to
+     */
+    <T extends Element> AsyncParse<T> parseAsync(String base, ParserOptions options, AsyncParseListener<T> listener);
+
     /**
      * Return the default parser options for this Parser. This method returns a copy of the default options. Changes to
      * this instance will not affect the defaults returned by subsequent requests.
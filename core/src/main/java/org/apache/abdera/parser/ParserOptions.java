@@ -24,6 +24,7 @@ import javax.xml.namespace.QName;
 import org.apache.abdera.factory.Factory;
 import org.apache.abdera.filter.ParseFilter;
 import org.apache.abdera.i18n.text.io.CompressionUtil.CompressionCodec;
+import org.apache.abdera.util.filter.PathProjection;
 
 /**
  * Parser options are used to modify the behavior of the parser.
@@ -66,6 +67,31 @@ public interface ParserOptions extends Cloneable {
      */
     ParserOptions setParseFilter(ParseFilter parseFilter);
 
+    /**
+     * Returns the path projection. If the projection is not null, the parser will skip any element (and its entire
+     * subtree) that does not lie on one of the projection's paths. The projection is applied before the Parse Filter.
+     */
+    PathProjection getProjection();
+
+    /**
+     * Sets the path projection. If the projection is not null, the parser will skip any element (and its entire
+     * subtree) that does not lie on one of the projection's paths. The projection is applied before the Parse Filter.
+     */
+    ParserOptions setProjection(PathProjection projection);
+
+    /**
+     * Returns the maximum number of top-level entries to parse from a feed, or -1 if there is no limit (the default).
+     * Once the limit is reached, the parser stops at the start tag of the next entry as if the feed ended there and
+     * closes the underlying stream. Feed metadata that follows the last parsed entry is not available.
+     */
+    int getMaxEntries();
+
+    /**
+     * Sets the maximum number of top-level entries to parse from a feed, or -1 for no limit. A limit of 0 parses only
+     * the feed metadata preceding the first entry.
+     */
+    ParserOptions setMaxEntries(int max);
+
     /**
      * Returns true if the parser should attempt to automatically detect the character encoding from the stream
      */
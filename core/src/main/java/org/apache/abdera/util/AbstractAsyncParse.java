@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.abdera.i18n.text.Localizer;
+import org.apache.abdera.model.Document;
+import org.apache.abdera.model.Element;
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.parser.AsyncParse;
+import org.apache.abdera.parser.AsyncParseListener;
+import org.apache.abdera.parser.ParseException;
+
+/**
+ * Base implementation of AsyncParse. The bytes written are collected into a growing buffer and the document is parsed
+ * from that buffer once end() is called. Subclasses may inspect the buffer as it grows to do part of the work early.
+ * Listener notifications are queued while the parse is locked and delivered once the lock has been released, so
+ * listeners never block concurrent calls to cancel() or write().
+ */
+public abstract class AbstractAsyncParse<T extends Element> implements AsyncParse<T> {
+
+    private final AsyncParseListener<T> listener;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private byte[] buf = new byte[8192];
+    private int len = 0;
+    private boolean ended = false;
+    private volatile boolean cancelled = false;
+    private volatile Document<T> document;
+    private volatile ParseException error;
+    private Notifications<T> pending = new Notifications<T>();
+
+    protected AbstractAsyncParse(AsyncParseListener<T> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Parse the complete document
+     */
+    protected abstract Document<T> parse(byte[] buf, int len) throws ParseException;
+
+    /**
+     * Called after each write with the bytes received so far. The default implementation does nothing.
+     */
+    protected void update(byte[] buf, int len) throws ParseException {
+    }
+
+    /**
+     * Notify the listener of a completed entry. The notification is delivered once the current call to write() or
+     * end() has released the lock.
+     */
+    protected void entry(Entry entry) {
+        if (listener != null)
+            pending.entries.add(entry);
+    }
+
+    public void write(ByteBuffer src) {
+        int n = src.remaining();
+        Notifications<T> notifications;
+        synchronized (this) {
+            if (!ensureCapacity(n)) {
+                src.position(src.limit());
+                return;
+            }
+            src.get(buf, len, n);
+            len += n;
+            written();
+            notifications = takeNotifications();
+        }
+        notifications.deliver(listener);
+    }
+
+    public void write(byte[] src, int off, int n) {
+        Notifications<T> notifications;
+        synchronized (this) {
+            if (!ensureCapacity(n))
+                return;
+            System.arraycopy(src, off, buf, len, n);
+            len += n;
+            written();
+            notifications = takeNotifications();
+        }
+        notifications.deliver(listener);
+    }
+
+    /**
+     * Returns the notifications queued so far and starts a new queue. Must be called with the lock held
+     */
+    private Notifications<T> takeNotifications() {
+        Notifications<T> notifications = pending;
+        pending = new Notifications<T>();
+        return notifications;
+    }
+
+    /**
+     * Returns false if the parse has already failed, in which case further input is discarded
+     */
+    private boolean ensureCapacity(int n) {
+        if (ended || cancelled)
+            throw new IllegalStateException(Localizer.get("ASYNC.PARSE.ENDED"));
+        if (error != null)
+            return false;
+        if (len + n > buf.length) {
+            byte[] b = new byte[Math.max(len + n, buf.length * 2)];
+            System.arraycopy(buf, 0, b, 0, len);
+            buf = b;
+        }
+        return true;
+    }
+
+    private void written() {
+        try {
+            update(buf, len);
+        } catch (ParseException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            fail(new ParseException(e));
+        }
+    }
+
+    public void end() {
+        Notifications<T> notifications;
+        synchronized (this) {
+            if (ended || cancelled)
+                return;
+            ended = true;
+            if (error != null)
+                return;
+            try {
+                Document<T> document = parse(buf, len);
+                this.document = document;
+                buf = null;
+                done.countDown();
+                if (listener != null)
+                    pending.document = document;
+            } catch (ParseException e) {
+                fail(e);
+            } catch (RuntimeException e) {
+                fail(new ParseException(e));
+            }
+            notifications = takeNotifications();
+        }
+        notifications.deliver(listener);
+    }
+
+    private void fail(ParseException e) {
+        error = e;
+        buf = null;
+        done.countDown();
+        if (listener != null)
+            pending.error = e;
+    }
+
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+        if (isDone())
+            return false;
+        cancelled = true;
+        buf = null;
+        done.countDown();
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    public Document<T> get() throws InterruptedException, ExecutionException {
+        done.await();
+        return result();
+    }
+
+    public Document<T> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+        TimeoutException {
+        if (!done.await(timeout, unit))
+            throw new TimeoutException();
+        return result();
+    }
+
+    private Document<T> result() throws ExecutionException {
+        if (cancelled)
+            throw new CancellationException();
+        if (error != null)
+            throw new ExecutionException(error);
+        return document;
+    }
+
+    /**
+     * Listener notifications queued during a single call to write() or end()
+     */
+    private static final class Notifications<T extends Element> {
+        private final List<Entry> entries = new ArrayList<Entry>();
+        private Document<T> document;
+        private ParseException error;
+
+        void deliver(AsyncParseListener<T> listener) {
+            if (listener == null)
+                return;
+            for (Entry entry : entries)
+                listener.onEntry(entry);
+            if (error != null)
+                listener.onError(error);
+            else if (document != null)
+                listener.onComplete(document);
+        }
+    }
+
+}
@@ -17,18 +17,33 @@
  */
 package org.apache.abdera.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
 
 import javax.xml.stream.XMLStreamReader;
 
 import org.apache.abdera.Abdera;
 import org.apache.abdera.factory.Factory;
+import org.apache.abdera.i18n.text.io.ByteBufferInputStream;
 import org.apache.abdera.model.Document;
 import org.apache.abdera.model.Element;
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.model.Feed;
+import org.apache.abdera.parser.AsyncParse;
+import org.apache.abdera.parser.AsyncParseListener;
+import org.apache.abdera.parser.EntryIterator;
 import org.apache.abdera.parser.ParseException;
 import org.apache.abdera.parser.Parser;
 import org.apache.abdera.parser.ParserOptions;
@@ -38,8 +53,13 @@ import org.apache.abdera.parser.ParserOptions;
  */
 public abstract class AbstractParser implements Parser {
 
+    /**
+     * Files larger than this are memory mapped rather than read into the heap
+     */
+    private static final long MAP_THRESHOLD = 256 * 1024;
+
     protected Abdera abdera;
-    protected ParserOptions options;
+    protected volatile ParserOptions options;
 
     protected AbstractParser() {
         this(new Abdera());
@@ -112,14 +132,119 @@ public abstract class AbstractParser implements Parser {
         return parse(buf, null, getDefaultParserOptions());
     }
 
-    public synchronized ParserOptions getDefaultParserOptions() {
+    public <T extends Element> Document<T> parse(File file) throws ParseException {
+        return parse(file, null, getDefaultParserOptions());
+    }
+
+    public <T extends Element> Document<T> parse(File file, ParserOptions options) throws ParseException {
+        return parse(file, null, options);
+    }
+
+    /**
+     * The file is closed before parsing starts, so the lazily built Document does not hold on to an open file.
+     */
+    public <T extends Element> Document<T> parse(File file, String base, ParserOptions options) throws ParseException {
+        ByteBuffer buf;
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                buf = read(in.getChannel());
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new ParseException(e);
+        }
+        return parse(buf, base, options);
+    }
+
+    /**
+     * Returns the bytes from the channel's current position to the end of the file. Small files are read into memory
+     * with a single read while larger ones are memory mapped. A mapping remains valid after the channel is closed.
+     */
+    protected static ByteBuffer read(FileChannel channel) throws IOException {
+        long position = channel.position();
+        long size = channel.size() - position;
+        if (size > MAP_THRESHOLD)
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        ByteBuffer buf = ByteBuffer.allocate((int)size);
+        while (buf.hasRemaining())
+            if (channel.read(buf) == -1)
+                break;
+        buf.flip();
+        return buf;
+    }
+
+    public <T extends Element> Document<T> parse(ByteBuffer buf) throws ParseException {
+        return parse(buf, null, getDefaultParserOptions());
+    }
+
+    public <T extends Element> Document<T> parse(ByteBuffer buf, ParserOptions options) throws ParseException {
+        return parse(buf, null, options);
+    }
+
+    public <T extends Element> Document<T> parse(ByteBuffer buf, String base, ParserOptions options)
+        throws ParseException {
+        return parse(new ByteBufferInputStream(buf), base, options);
+    }
+
+    public EntryIterator parseEntries(InputStream in) throws ParseException {
+        return parseEntries(in, null, getDefaultParserOptions());
+    }
+
+    public EntryIterator parseEntries(InputStream in, ParserOptions options) throws ParseException {
+        return parseEntries(in, null, options);
+    }
+
+    /**
+     * Default implementation that parses the complete document and iterates over its entries. Parsers capable of
+     * incremental parsing should override this to release entries as the iterator advances.
+     */
+    public EntryIterator parseEntries(InputStream in, String base, ParserOptions options) throws ParseException {
+        Document<Element> doc = parse(in, base, options);
+        return new DocumentEntryIterator(doc.getRoot());
+    }
+
+    /**
+     * Default implementation that parses the document on the calling thread. Parsers capable of parsing entries
+     * independently should override this.
+     */
+    public <T extends Element> Document<T> parseParallel(InputStream in,
+                                                         String base,
+                                                         ParserOptions options,
+                                                         ExecutorService executor) throws ParseException {
+        return parse(in, base, options);
+    }
+
+    /**
+     * Default implementation that parses the complete document once it has been written. Parsers capable of
+     * recognizing entries while the document is still arriving should override this.
+     */
+    public <T extends Element> AsyncParse<T> parseAsync(final String base,
+                                                        final ParserOptions options,
+                                                        AsyncParseListener<T> listener) {
+        return new AbstractAsyncParse<T>(listener) {
+            protected Document<T> parse(byte[] buf, int len) throws ParseException {
+                Document<T> document = AbstractParser.this.parse(new ByteArrayInputStream(buf, 0, len), base, options);
+                document.complete();
+                if (document.getRoot() instanceof Feed)
+                    for (Entry entry : ((Feed)document.getRoot()).getEntries())
+                        entry(entry);
+                return document;
+            }
+        };
+    }
+
+    public ParserOptions getDefaultParserOptions() {
+        ParserOptions options = this.options;
         if (options == null)
-            options = initDefaultParserOptions();
+            this.options = options = share(initDefaultParserOptions());
 
         // Make a copy of the options, so that changes to it don't result in
         // changes to the Parser's defaults. Also, this allows us to remain
         // thread safe without having to make ParseOptions implementations
-        // synchronized.
+        // synchronized. The defaults are never modified once published, so
+        // no lock is needed to copy them.
 
         try {
             return (ParserOptions)options.clone();
@@ -131,13 +256,19 @@ public abstract class AbstractParser implements Parser {
 
     protected abstract ParserOptions initDefaultParserOptions();
 
-    public synchronized Parser setDefaultParserOptions(ParserOptions options) {
+    private static ParserOptions share(ParserOptions options) {
+        if (options instanceof AbstractParserOptions)
+            ((AbstractParserOptions)options).share();
+        return options;
+    }
+
+    public Parser setDefaultParserOptions(ParserOptions options) {
         // Ok, we need to make a defensive copy of the options, since otherwise
         // the caller still has access to the object, which means our access to
         // it isn't certain to be thread safe.
 
         try {
-            this.options = (options != null) ? (ParserOptions)options.clone() : initDefaultParserOptions();
+            this.options = share((options != null) ? (ParserOptions)options.clone() : initDefaultParserOptions());
             return this;
         } catch (CloneNotSupportedException cnse) {
             // This shouldn't actually happen
@@ -145,4 +276,40 @@ public abstract class AbstractParser implements Parser {
         }
     }
 
+    private static class DocumentEntryIterator implements EntryIterator {
+        private final Feed feed;
+        private final Iterator<Entry> entries;
+
+        DocumentEntryIterator(Element root) {
+            if (root instanceof Feed) {
+                feed = (Feed)root;
+                entries = feed.getEntries().iterator();
+            } else {
+                feed = null;
+                entries =
+                    (root instanceof Entry) ? Collections.singletonList((Entry)root).iterator() : Collections
+                        .<Entry> emptyList().iterator();
+            }
+        }
+
+        public Feed getFeed() {
+            return feed;
+        }
+
+        public boolean hasNext() {
+            return entries.hasNext();
+        }
+
+        public Entry next() {
+            return entries.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void close() {
+        }
+    }
+
 }
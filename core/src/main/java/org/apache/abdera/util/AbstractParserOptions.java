@@ -17,6 +17,7 @@
  */
 package org.apache.abdera.util;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,6 +27,7 @@ import org.apache.abdera.factory.Factory;
 import org.apache.abdera.filter.ParseFilter;
 import org.apache.abdera.i18n.text.io.CompressionUtil.CompressionCodec;
 import org.apache.abdera.parser.ParserOptions;
+import org.apache.abdera.util.filter.PathProjection;
 
 /**
  * Non thread-safe abstract implementation of ParserOptions
@@ -35,6 +37,8 @@ public abstract class AbstractParserOptions implements ParserOptions, Cloneable
     protected Factory factory = null;
     protected String charset = null;
     protected ParseFilter parseFilter = null;
+    protected PathProjection projection = null;
+    protected int maxEntries = -1;
     protected boolean detect = false;
     protected boolean preserve = true;
     protected boolean filterreserved = false;
@@ -42,6 +46,7 @@ public abstract class AbstractParserOptions implements ParserOptions, Cloneable
     protected CompressionCodec[] codecs = null;
     protected boolean resolveentities = true;
     protected Map<String, String> entities = new HashMap<String, String>();
+    private boolean sharedEntities = false;
 
     protected boolean qnamealiasing = false;
     protected Map<QName, QName> aliases = null;
@@ -64,6 +69,14 @@ public abstract class AbstractParserOptions implements ParserOptions, Cloneable
         if (parseFilter != null)
             copy.parseFilter = (ParseFilter)parseFilter.clone();
 
+        // The entity map is large and rarely modified. The map of shared options
+        // (see share()) is never written to, so copies of them use it as is and
+        // only duplicate it when they register an entity. Otherwise the copy gets
+        // a map of its own; the source is never modified.
+
+        if (!sharedEntities)
+            copy.entities = new HashMap<String, String>(entities);
+
         return copy;
     }
 
@@ -97,6 +110,24 @@ public abstract class AbstractParserOptions implements ParserOptions, Cloneable
         return this;
     }
 
+    public PathProjection getProjection() {
+        return projection;
+    }
+
+    public ParserOptions setProjection(PathProjection projection) {
+        this.projection = projection;
+        return this;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public ParserOptions setMaxEntries(int max) {
+        this.maxEntries = max;
+        return this;
+    }
+
     public boolean getAutodetectCharset() {
         return this.detect;
     }
@@ -142,7 +173,23 @@ public abstract class AbstractParserOptions implements ParserOptions, Cloneable
         return this;
     }
 
+    /**
+     * Marks these options as shared, e.g. because they are about to be published as a Parser's defaults. The entity
+     * map is made unmodifiable so that the options can be copied without duplicating it. Must be called before the
+     * options are made visible to other threads.
+     */
+    void share() {
+        if (!sharedEntities) {
+            entities = Collections.unmodifiableMap(entities);
+            sharedEntities = true;
+        }
+    }
+
     public ParserOptions registerEntity(String name, String value) {
+        if (sharedEntities) {
+            entities = new HashMap<String, String>(entities);
+            sharedEntities = false;
+        }
         entities.put(name, value);
         return this;
     }
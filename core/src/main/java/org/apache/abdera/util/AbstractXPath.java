@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.abdera.model.Base;
+import org.apache.abdera.xpath.CompiledXPath;
 import org.apache.abdera.xpath.XPath;
 import org.apache.abdera.xpath.XPathException;
 
@@ -77,4 +78,8 @@ public abstract class AbstractXPath implements XPath {
         return numericValueOf(path, base, getDefaultNamespaces());
     }
 
+    public CompiledXPath compile(String path) throws XPathException {
+        return compile(path, getDefaultNamespaces());
+    }
+
 }
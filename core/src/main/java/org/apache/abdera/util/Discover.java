@@ -8,15 +8,75 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 @SuppressWarnings("unchecked")
 public final class Discover {
 
+    /**
+     * The implementation class names listed in the META-INF/services resources, per class loader and service id. Only
+     * the names are cached, so the cache never keeps a class loader alive.
+     */
+    private static final Map<ClassLoader, Map<String, List<String>>> specs =
+        new WeakHashMap<ClassLoader, Map<String, List<String>>>();
+
     private Discover() {
     }
 
+    /**
+     * Discard the cached results of scanning the META-INF/services resources. Subsequent lookups will scan the class
+     * path again.
+     */
+    public static void clearCache() {
+        synchronized (specs) {
+            specs.clear();
+        }
+    }
+
+    /**
+     * Return the implementation class names listed in the META-INF/services resources for the given id. The class path
+     * is only scanned the first time a given id is requested from a given class loader.
+     */
+    public static List<String> locateSpecs(String id, ClassLoader loader) throws IOException {
+        synchronized (specs) {
+            Map<String, List<String>> map = specs.get(loader);
+            List<String> list = map != null ? map.get(id) : null;
+            if (list != null)
+                return list;
+        }
+        List<String> list = new ArrayList<String>();
+        Enumeration<URL> e = locateResources("META-INF/services/" + id, //$NON-NLS-1$ 
+                                             loader,
+                                             Discover.class);
+        while (e.hasMoreElements()) {
+            BufferedReader buf = new BufferedReader(new InputStreamReader(e.nextElement().openStream(), "UTF-8"));
+            try {
+                String line = null;
+                while ((line = buf.readLine()) != null) {
+                    line = line.trim();
+                    if (line.length() > 0 && !line.startsWith("#")) //$NON-NLS-1$
+                        list.add(line);
+                }
+            } finally {
+                buf.close();
+            }
+        }
+        list = Collections.unmodifiableList(list);
+        synchronized (specs) {
+            Map<String, List<String>> map = specs.get(loader);
+            if (map == null) {
+                map = new HashMap<String, List<String>>();
+                specs.put(loader, map);
+            }
+            map.put(id, list);
+        }
+        return list;
+    }
+
     public static <T> T locate(String id, String defaultImpl, Object... args) {
         return (T)locate(id, defaultImpl, getLoader(), args);
     }
@@ -94,16 +154,7 @@ public final class Discover {
 
         private Iterator<T> init(boolean classesonly) {
             try {
-                List<Iterator<T>> list = new ArrayList<Iterator<T>>();
-                Enumeration<URL> e = locateResources("META-INF/services/" + id, //$NON-NLS-1$ 
-                                                     loader,
-                                                     Discover.class);
-                while (e.hasMoreElements()) {
-                    Iterator<T> i =
-                        new DefaultLoaderIterator<T>(loader, e.nextElement().openStream(), classesonly, args);
-                    list.add(i);
-                }
-                return new MultiIterator<T>(list);
+                return new SpecLoaderIterator<T>(loader, locateSpecs(id, loader), classesonly, args);
             } catch (Throwable t) {
                 throw new RuntimeException(t);
             }
@@ -140,6 +191,36 @@ public final class Discover {
         }
     }
 
+    /**
+     * Creates instances (or loads the classes) named by a list of implementation class names
+     */
+    private static final class SpecLoaderIterator<T> extends LoaderIterator<T> {
+        private final Iterator<String> specs;
+        private final boolean classesonly;
+        private final Object[] args;
+
+        SpecLoaderIterator(ClassLoader cl, List<String> specs, boolean classesonly, Object[] args) {
+            super(cl);
+            this.specs = specs.iterator();
+            this.classesonly = classesonly;
+            this.args = args;
+        }
+
+        public boolean hasNext() {
+            return specs.hasNext();
+        }
+
+        public T next() {
+            try {
+                if (!hasNext())
+                    return null;
+                return (T)load(cl, specs.next(), classesonly, args);
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+    }
+
     private static <T> T load(ClassLoader loader, String spec, boolean classesonly, Object[] args) throws Exception {
         if (classesonly) {
             return (T)getClass(loader, spec);
@@ -22,6 +22,8 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.activation.MimeType;
 import javax.activation.MimeTypeParameterList;
@@ -41,6 +43,55 @@ public class MimeTypeHelper {
 
     private static final MimeType WILDCARD = createWildcard();
 
+    /**
+     * The maximum number of parsed media types kept in the cache. The cache is emptied when it grows beyond this size
+     */
+    private static final int CACHE_SIZE = 512;
+
+    private static final ConcurrentMap<String, MediaType> cache = new ConcurrentHashMap<String, MediaType>();
+
+    /**
+     * The type and subtype of a parsed media type. Both are interned so that they can be compared by reference
+     */
+    private static final class MediaType {
+        final String type;
+        final String subtype;
+
+        MediaType(String type, String subtype) {
+            this.type = type;
+            this.subtype = subtype;
+        }
+
+        boolean matches(MediaType other) {
+            return (type == other.type || type == "*" || other.type == "*")
+                && (subtype == other.subtype || subtype == "*" || other.subtype == "*");
+        }
+    }
+
+    private static final MediaType INVALID = new MediaType(null, null);
+
+    /**
+     * Returns the parsed type and subtype of the given media type, or INVALID if it cannot be parsed. Parsed values are
+     * cached, so matching frequently used media types does not allocate.
+     */
+    private static MediaType getMediaType(String value) {
+        if (value == null)
+            return INVALID;
+        MediaType mt = cache.get(value);
+        if (mt == null) {
+            try {
+                MimeType mimetype = new MimeType(value.toLowerCase());
+                mt = new MediaType(mimetype.getPrimaryType().intern(), mimetype.getSubType().intern());
+            } catch (Exception e) {
+                mt = INVALID;
+            }
+            if (cache.size() >= CACHE_SIZE)
+                cache.clear();
+            cache.put(value, mt);
+        }
+        return mt;
+    }
+
     public static String getCharset(String mediatype) {
         try {
             MimeType mt = new MimeType(mediatype);
@@ -64,14 +115,9 @@ public class MimeTypeHelper {
     public static boolean isMatch(String a, String b) {
         if ((a == null || a.length() == 0) && (b == null || b.length() == 0))
             return true;
-        boolean answer = false;
-        try {
-            MimeType mta = new MimeType(a.toLowerCase());
-            MimeType mtb = new MimeType(b.toLowerCase());
-            return isMatch(mta, mtb);
-        } catch (Exception e) {
-        }
-        return answer;
+        MediaType mta = getMediaType(a);
+        MediaType mtb = getMediaType(b);
+        return mta != INVALID && mtb != INVALID && mta.matches(mtb);
     }
 
     public static boolean isMatch(MimeType a, MimeType b) {
@@ -127,10 +173,6 @@ public class MimeTypeHelper {
         return false;
     }
 
-    private static boolean isMatchType(String actual, String expected) {
-        return (actual != null && actual.equalsIgnoreCase(expected) || true);
-    }
-
     /**
      * Returns true if media type a matches application/atomsrv+xml
      */
@@ -151,28 +193,14 @@ public class MimeTypeHelper {
      * Returns true if media type a specifically identifies an Atom entry document
      */
     public static boolean isEntry(String a) {
-        try {
-            MimeType mta = new MimeType(a.toLowerCase());
-            MimeType mtb = new MimeType(Constants.ATOM_MEDIA_TYPE);
-            MimeType mtc = new MimeType(Constants.ENTRY_MEDIA_TYPE);
-            return isMatch(mta, mtc) || (isMatch(mta, mtb) && isMatchType(mta.getParameter("type"), "entry"));
-        } catch (Exception e) {
-        }
-        return false;
+        return isMatch(a, Constants.ENTRY_MEDIA_TYPE) || isMatch(a, Constants.ATOM_MEDIA_TYPE);
     }
 
     /**
      * Returns true if media type a explicitly identifies an Atom feed document
      */
     public static boolean isFeed(String a) {
-        try {
-            MimeType mta = new MimeType(a.toLowerCase());
-            MimeType mtb = new MimeType(Constants.ATOM_MEDIA_TYPE);
-            MimeType mtc = new MimeType(Constants.FEED_MEDIA_TYPE);
-            return isMatch(mta, mtc) || (isMatch(mta, mtb) && isMatchType(mta.getParameter("type"), "feed"));
-        } catch (Exception e) {
-        }
-        return false;
+        return isMatch(a, Constants.FEED_MEDIA_TYPE) || isMatch(a, Constants.ATOM_MEDIA_TYPE);
     }
 
     /**
@@ -181,13 +209,10 @@ public class MimeTypeHelper {
     public static boolean isXml(String a) {
         boolean answer = isMatch(Constants.XML_MEDIA_TYPE, a) || isMatch("text/xml", a);
         if (!answer) {
-            try {
-                MimeType mta = new MimeType(a);
-                answer =
-                    (("application".equalsIgnoreCase(mta.getPrimaryType()) || "text".equalsIgnoreCase(mta
-                        .getPrimaryType())) && mta.getSubType().equals("xml") || mta.getSubType().endsWith("+xml"));
-            } catch (Exception e) {
-            }
+            MediaType mta = getMediaType(a);
+            answer =
+                mta != INVALID && ((mta.type == "application" || mta.type == "text") && mta.subtype == "xml" || mta.subtype
+                    .endsWith("+xml"));
         }
         return answer;
     }
@@ -203,14 +228,7 @@ public class MimeTypeHelper {
      * Returns true if this is a valid media type
      */
     public static boolean isMimeType(String a) {
-        boolean answer = false;
-        try {
-            new MimeType(a);
-            answer = true;
-        } catch (javax.activation.MimeTypeParseException e) {
-            answer = false;
-        }
-        return answer;
+        return getMediaType(a) != INVALID;
     }
 
     /**
@@ -309,11 +327,13 @@ public class MimeTypeHelper {
      * Compare two media types according to their relative level of specificity
      */
     public static int compare(String t1, String t2) {
-        try {
-            MimeType mt1 = new MimeType(t1);
-            MimeType mt2 = new MimeType(t2);
-            return compare(mt1, mt2);
-        } catch (Exception e) {
+        MediaType mt1 = getMediaType(t1);
+        MediaType mt2 = getMediaType(t2);
+        if (mt1 != INVALID && mt2 != INVALID && mt1.matches(mt2)) {
+            if (mt1.subtype == "*")
+                return -1;
+            if (mt2.subtype == "*")
+                return 1;
         }
         return 0;
     }
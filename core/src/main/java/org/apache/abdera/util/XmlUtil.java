@@ -61,6 +61,39 @@ public class XmlUtil {
         return CharUtils.invset_contains(version == XMLVersion.XML10 ? RESTRICTED_SET_v1 : RESTRICTED_SET_v11, c);
     }
 
+    /**
+     * Returns the value of the named pseudo-attribute (version, encoding or standalone) of the XML declaration at the
+     * start of the given text, or null if the text does not begin with an XML declaration specifying it. A leading byte
+     * order mark is ignored. This is a lightweight alternative to creating an XMLStreamReader just to read the
+     * declaration.
+     */
+    public static String getDeclarationAttribute(String prolog, String name) {
+        int n = prolog.length() > 0 && prolog.charAt(0) == '\uFEFF' ? 1 : 0;
+        if (!prolog.startsWith("<?xml", n))
+            return null;
+        int end = prolog.indexOf("?>", n);
+        int i = prolog.indexOf(name, n);
+        if (end == -1 || i == -1 || i > end)
+            return null;
+        i = skipWhitespace(prolog, i + name.length(), end);
+        if (i >= end || prolog.charAt(i) != '=')
+            return null;
+        i = skipWhitespace(prolog, i + 1, end);
+        if (i >= end)
+            return null;
+        char quote = prolog.charAt(i);
+        if (quote != '"' && quote != '\'')
+            return null;
+        int close = prolog.indexOf(quote, i + 1);
+        return close != -1 && close < end ? prolog.substring(i + 1, close) : null;
+    }
+
+    private static int skipWhitespace(String s, int i, int end) {
+        while (i < end && (s.charAt(i) == ' ' || s.charAt(i) == '\t' || s.charAt(i) == '\r' || s.charAt(i) == '\n'))
+            i++;
+        return i;
+    }
+
     public static XMLVersion getVersion(String version) {
         return version == null ? XMLVersion.XML10 : version.equals("1.0") ? XMLVersion.XML10 : version.equals("1.1")
             ? XMLVersion.XML11 : XMLVersion.XML10;
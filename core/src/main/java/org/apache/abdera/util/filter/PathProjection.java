@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.util.filter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.abdera.i18n.text.Localizer;
+
+/**
+ * A set of element paths compiled into a state machine that the parser uses to decide, as each start tag is read,
+ * whether the element is needed at all. Elements that are not on one of the paths are skipped along with their entire
+ * subtree before any objects are created for them. Elements matched by the last step of a path are kept along with
+ * their complete content.
+ * 
+ * <pre>
+ *   ParserOptions options = parser.getDefaultParserOptions();
+ *   options.setProjection(new PathProjection("feed/id", "feed/updated", "feed/entry/id", "feed/entry/updated",
+ *       "feed/entry/link[@rel='edit']"));
+ * </pre>
+ * 
+ * Each step is a local name, a prefixed name (resolved against the namespace bindings passed to the constructor) or
+ * the "*" wildcard. Unprefixed names match elements with that local name in any namespace. A step may carry a single
+ * attribute predicate, either [@name] (the attribute must be present) or [@name='value'].
+ */
+public final class PathProjection implements Serializable {
+
+    private static final long serialVersionUID = -2253009034474722510L;
+
+    private final Map<String, String> namespaces;
+    private final String[] paths;
+    private final transient State initial;
+
+    public PathProjection(String... paths) {
+        this(null, paths);
+    }
+
+    public PathProjection(Map<String, String> namespaces, String... paths) {
+        this.namespaces = namespaces != null ? new HashMap<String, String>(namespaces) : null;
+        this.paths = paths.clone();
+        Step root = new Step(null, null, null);
+        for (String path : paths)
+            compile(root, path, namespaces);
+        this.initial = new State(new Step[] {root});
+    }
+
+    /**
+     * The paths this projection was compiled from
+     */
+    public String[] getPaths() {
+        return paths.clone();
+    }
+
+    /**
+     * The state of the machine before the document element has been read
+     */
+    public State getInitialState() {
+        return initial;
+    }
+
+    private Object readResolve() {
+        return new PathProjection(namespaces, paths);
+    }
+
+    private static void compile(Step root, String path, Map<String, String> namespaces) {
+        String p = path != null ? path.trim() : "";
+        if (p.startsWith("/"))
+            p = p.substring(1);
+        if (p.length() == 0)
+            throw new IllegalArgumentException(Localizer.sprintf("INVALID.PROJECTION.PATH", path));
+        Step current = root;
+        for (String token : p.split("/")) {
+            String name = token.trim();
+            String attr = null;
+            String value = null;
+            int b = name.indexOf('[');
+            if (b != -1) {
+                if (!name.endsWith("]") || name.charAt(b + 1) != '@')
+                    throw new IllegalArgumentException(Localizer.sprintf("INVALID.PROJECTION.PATH", path));
+                String pred = name.substring(b + 2, name.length() - 1).trim();
+                name = name.substring(0, b).trim();
+                int e = pred.indexOf('=');
+                if (e != -1) {
+                    value = pred.substring(e + 1).trim();
+                    pred = pred.substring(0, e).trim();
+                    if (value.length() < 2 || (value.charAt(0) != '\'' && value.charAt(0) != '"')
+                        || value.charAt(value.length() - 1) != value.charAt(0))
+                        throw new IllegalArgumentException(Localizer.sprintf("INVALID.PROJECTION.PATH", path));
+                    value = value.substring(1, value.length() - 1);
+                }
+                attr = pred;
+            }
+            if (name.length() == 0 || (attr != null && attr.length() == 0))
+                throw new IllegalArgumentException(Localizer.sprintf("INVALID.PROJECTION.PATH", path));
+            current = current.add(resolve(name, namespaces, path), attr != null ? resolve(attr, namespaces, path)
+                : null, value);
+        }
+        current.terminal = true;
+    }
+
+    /**
+     * Resolves a step name to a {namespace, local name} pair. A null namespace matches any namespace and a null local
+     * name matches any name.
+     */
+    private static String[] resolve(String name, Map<String, String> namespaces, String path) {
+        if ("*".equals(name))
+            return new String[] {null, null};
+        int c = name.indexOf(':');
+        if (c == -1)
+            return new String[] {null, name};
+        String ns = namespaces != null ? namespaces.get(name.substring(0, c)) : null;
+        if (ns == null)
+            throw new IllegalArgumentException(Localizer.sprintf("INVALID.PROJECTION.PATH", path));
+        return new String[] {ns, name.substring(c + 1)};
+    }
+
+    private static boolean matches(String[] pattern, String ns, String localName) {
+        return (pattern[1] == null || pattern[1].equals(localName))
+            && (pattern[0] == null || pattern[0].equals(ns != null ? ns : ""));
+    }
+
+    /**
+     * A single step of a compiled path. Steps form a tree rooted at an empty step that is shared by all paths.
+     */
+    private static final class Step {
+        private final String[] name;
+        private final String[] attribute;
+        private final String value;
+        private final List<Step> children = new ArrayList<Step>();
+        private boolean terminal;
+
+        Step(String[] name, String[] attribute, String value) {
+            this.name = name;
+            this.attribute = attribute;
+            this.value = value;
+        }
+
+        Step add(String[] name, String[] attribute, String value) {
+            for (Step child : children) {
+                if (Arrays.equals(child.name, name) && Arrays.equals(child.attribute, attribute)
+                    && (child.value == null ? value == null : child.value.equals(value)))
+                    return child;
+            }
+            Step child = new Step(name, attribute, value);
+            children.add(child);
+            return child;
+        }
+
+        boolean matches(String ns, String localName, XMLStreamReader reader) {
+            if (!PathProjection.matches(name, ns, localName))
+                return false;
+            if (attribute == null)
+                return true;
+            int count = reader.getAttributeCount();
+            for (int n = 0; n < count; n++) {
+                if (PathProjection.matches(attribute, reader.getAttributeNamespace(n), reader
+                    .getAttributeLocalName(n)))
+                    return value == null || value.equals(reader.getAttributeValue(n));
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A state of the projection state machine: the set of path steps that match the element most recently entered.
+     * Transitions that do not depend on attribute values are memoized, so for most documents each distinct element
+     * name is evaluated only once per state. At most MAX_TRANSITIONS names are memoized per state, so documents with
+     * many distinct element names cannot grow a shared projection without bound. States are immutable and safe to
+     * share between threads.
+     */
+    public static final class State {
+        private static final int MAX_TRANSITIONS = 64;
+
+        /**
+         * The state used for the descendants of an element matched by the last step of a path. Everything is kept.
+         */
+        public static final State ALL = new State(new Step[0]);
+
+        /**
+         * The state returned for elements that should be skipped
+         */
+        public static final State NONE = new State(new Step[0]);
+
+        private final Step[] steps;
+        private final boolean predicated;
+        private final Map<QName, State> transitions = new ConcurrentHashMap<QName, State>();
+
+        private State(Step[] steps) {
+            this.steps = steps;
+            boolean predicated = false;
+            for (Step step : steps) {
+                for (Step child : step.children)
+                    predicated |= child.attribute != null;
+            }
+            this.predicated = predicated;
+        }
+
+        /**
+         * Returns the state for the element at the current START_ELEMENT event of the reader: {@link #ALL} if the
+         * element and all of its descendants are to be kept, {@link #NONE} if the element is to be skipped, or an
+         * intermediate state if only some of its descendants are to be kept.
+         */
+        public State next(XMLStreamReader reader) {
+            if (this == ALL)
+                return ALL;
+            if (predicated)
+                return compute(reader.getNamespaceURI(), reader.getLocalName(), reader);
+            QName qname = reader.getName();
+            State next = transitions.get(qname);
+            if (next == null) {
+                next = compute(qname.getNamespaceURI(), qname.getLocalPart(), reader);
+                if (transitions.size() < MAX_TRANSITIONS)
+                    transitions.put(qname, next);
+            }
+            return next;
+        }
+
+        private State compute(String ns, String localName, XMLStreamReader reader) {
+            List<Step> matched = null;
+            for (Step step : steps) {
+                for (Step child : step.children) {
+                    if (child.matches(ns, localName, reader)) {
+                        if (child.terminal)
+                            return ALL;
+                        if (matched == null)
+                            matched = new ArrayList<Step>();
+                        matched.add(child);
+                    }
+                }
+            }
+            if (matched == null)
+                return NONE;
+            return new State(matched.toArray(new Step[matched.size()]));
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.xpath;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.i18n.text.Localizer;
+import org.apache.abdera.model.Attribute;
+import org.apache.abdera.model.Document;
+import org.apache.abdera.model.Element;
+import org.apache.abdera.model.TextValue;
+
+/**
+ * Evaluates a restricted subset of XPath directly against an XMLStreamReader, without building a document. This is
+ * useful when only a few values are needed out of a large document, e.g.
+ * 
+ * <pre>
+ *   StreamingXPath xpath = StreamingXPath.compile(&quot;/a:entry/a:link[@rel='edit']/@href&quot;, namespaces);
+ *   String href = xpath.valueOf(reader);
+ * </pre>
+ * 
+ * Supported expressions are absolute location paths made of child steps. Each step is a name test (a qualified name,
+ * prefix:* or *) followed by any number of attribute predicates, either [@name] or [@name='value']. The last step may
+ * instead be an attribute (@name or @*) or text(). Unprefixed names match names with no namespace, as in XPath.
+ * {@link #isStreamable(String)} tells whether an expression can be evaluated this way; the static helpers that take an
+ * Abdera instance fall back to parsing the document and using the regular {@link XPath} implementation when it cannot.
+ */
+public final class StreamingXPath {
+
+    private static final int ELEMENT = 0;
+    private static final int ATTRIBUTE = 1;
+    private static final int TEXT = 2;
+
+    private final String path;
+    private final Step[] steps;
+    private final int target;
+    private final String[] attribute;
+
+    private StreamingXPath(String path, Step[] steps, int target, String[] attribute) {
+        this.path = path;
+        this.steps = steps;
+        this.target = target;
+        this.attribute = attribute;
+    }
+
+    /**
+     * Compile the specified path. Prefixes are resolved against the given namespace bindings
+     * 
+     * @throws XPathException if the path is not one of the supported forms or uses an unbound prefix
+     */
+    public static StreamingXPath compile(String path, Map<String, String> namespaces) throws XPathException {
+        StreamingXPath xpath = parse(path, namespaces);
+        if (xpath == null)
+            throw new XPathException(Localizer.sprintf("UNSUPPORTED.STREAMING.XPATH", path));
+        return xpath;
+    }
+
+    /**
+     * True if the path can be evaluated by a StreamingXPath. Namespace prefixes are not checked
+     */
+    public static boolean isStreamable(String path) {
+        return parse(path, null) != null;
+    }
+
+    /**
+     * The path this expression was compiled from
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Return the string values of all nodes selected by the path, in document order. The reader must be positioned at
+     * the start of the document or at the document element, and is left positioned after the last event read
+     */
+    public List<String> selectValues(XMLStreamReader reader) throws XPathException {
+        List<String> results = new ArrayList<String>();
+        select(reader, results, false);
+        return results;
+    }
+
+    /**
+     * Return the string value of the first node selected by the path, or an empty string if nothing is selected.
+     * Reading stops as soon as the value is known
+     */
+    public String valueOf(XMLStreamReader reader) throws XPathException {
+        List<String> results = new ArrayList<String>(1);
+        select(reader, results, true);
+        return results.isEmpty() ? "" : results.get(0);
+    }
+
+    /**
+     * True if the path selects at least one node. Reading stops as soon as the answer is known
+     */
+    public boolean booleanValueOf(XMLStreamReader reader) throws XPathException {
+        List<String> results = new ArrayList<String>(1);
+        select(reader, results, true);
+        return !results.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * Return the string values of all nodes selected by the path. The stream is read without building a document if
+     * the path is streamable; otherwise it is parsed and evaluated using abdera.getXPath(). If namespaces is null the
+     * default namespaces of abdera.getXPath() are used
+     */
+    public static List<String> selectValues(Abdera abdera, InputStream in, String path, Map<String, String> namespaces)
+        throws XPathException {
+        XPath xpath = abdera.getXPath();
+        if (namespaces == null)
+            namespaces = xpath.getDefaultNamespaces();
+        StreamingXPath streaming = parse(path, namespaces);
+        if (streaming != null) {
+            XMLStreamReader reader = createReader(in);
+            try {
+                return streaming.selectValues(reader);
+            } finally {
+                close(reader);
+            }
+        }
+        Document<Element> doc = abdera.getParser().parse(in);
+        List<String> results = new ArrayList<String>();
+        for (Object node : xpath.selectNodes(path, doc.getRoot(), namespaces)) {
+            if (node instanceof Element)
+                results.add(xpath.valueOf(".", (Element)node));
+            else if (node instanceof Attribute)
+                results.add(((Attribute)node).getText());
+            else if (node instanceof TextValue)
+                results.add(((TextValue)node).getText());
+            else
+                results.add(String.valueOf(node));
+        }
+        return results;
+    }
+
+    /**
+     * Return the string value of the path. The stream is read without building a document if the path is streamable;
+     * otherwise it is parsed and evaluated using abdera.getXPath(). If namespaces is null the default namespaces of
+     * abdera.getXPath() are used
+     */
+    public static String valueOf(Abdera abdera, InputStream in, String path, Map<String, String> namespaces)
+        throws XPathException {
+        XPath xpath = abdera.getXPath();
+        if (namespaces == null)
+            namespaces = xpath.getDefaultNamespaces();
+        StreamingXPath streaming = parse(path, namespaces);
+        if (streaming != null) {
+            XMLStreamReader reader = createReader(in);
+            try {
+                return streaming.valueOf(reader);
+            } finally {
+                close(reader);
+            }
+        }
+        Document<Element> doc = abdera.getParser().parse(in);
+        return xpath.valueOf(path, doc.getRoot(), namespaces);
+    }
+
+    private void select(XMLStreamReader reader, List<String> results, boolean first) throws XPathException {
+        try {
+            int depth = 0;
+            int matched = 0;
+            StringBuilder buf = null;
+            int event = reader.getEventType();
+            while (true) {
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (buf != null && target == TEXT && depth == steps.length) {
+                            if (flush(buf, results) && first)
+                                return;
+                            buf.setLength(0);
+                        }
+                        depth++;
+                        if (matched == depth - 1 && depth <= steps.length && steps[depth - 1].matches(reader)) {
+                            matched = depth;
+                            if (depth == steps.length) {
+                                if (target == ATTRIBUTE) {
+                                    if (selectAttributes(reader, results) && first)
+                                        return;
+                                } else {
+                                    buf = new StringBuilder();
+                                }
+                            }
+                        } else if (depth == 1) {
+                            return;
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (buf != null && depth == steps.length) {
+                            boolean found = target == ELEMENT ? results.add(buf.toString()) : flush(buf, results);
+                            buf = null;
+                            if (found && first)
+                                return;
+                        }
+                        if (matched == depth)
+                            matched--;
+                        if (--depth == 0)
+                            return;
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                    case XMLStreamConstants.ENTITY_REFERENCE:
+                        if (buf != null && (target == ELEMENT || depth == steps.length))
+                            buf.append(reader.getText());
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        if (buf != null && target == TEXT && depth == steps.length) {
+                            if (flush(buf, results) && first)
+                                return;
+                            buf.setLength(0);
+                        }
+                        break;
+                }
+                if (!reader.hasNext())
+                    return;
+                event = reader.next();
+            }
+        } catch (XMLStreamException e) {
+            throw new XPathException(e);
+        }
+    }
+
+    private boolean selectAttributes(XMLStreamReader reader, List<String> results) {
+        boolean found = false;
+        int count = reader.getAttributeCount();
+        for (int n = 0; n < count; n++) {
+            if (matches(attribute, reader.getAttributeNamespace(n), reader.getAttributeLocalName(n))) {
+                results.add(reader.getAttributeValue(n));
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    private static boolean flush(StringBuilder buf, List<String> results) {
+        if (buf.length() == 0)
+            return false;
+        results.add(buf.toString());
+        return true;
+    }
+
+    private static boolean matches(String[] pattern, String ns, String localName) {
+        return (pattern[1] == null || pattern[1].equals(localName))
+            && (pattern[0] == null || pattern[0].equals(ns != null ? ns : ""));
+    }
+
+    private static XMLStreamReader createReader(InputStream in) throws XPathException {
+        try {
+            return InputFactoryHolder.FACTORY.createXMLStreamReader(in);
+        } catch (XMLStreamException e) {
+            throw new XPathException(e);
+        }
+    }
+
+    private static void close(XMLStreamReader reader) {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+        }
+    }
+
+    /**
+     * Parses the path into a StreamingXPath, or returns null if it is not one of the supported forms. If namespaces is
+     * null, prefixes are not resolved and the result must not be used for evaluation
+     */
+    private static StreamingXPath parse(String path, Map<String, String> namespaces) throws XPathException {
+        if (path == null)
+            return null;
+        String p = path.trim();
+        if (p.length() < 2 || p.charAt(0) != '/' || p.indexOf("//") != -1 || p.endsWith("/"))
+            return null;
+        String[] tokens = p.substring(1).split("/");
+        int target = ELEMENT;
+        String[] attribute = null;
+        int count = tokens.length;
+        String last = tokens[count - 1].trim();
+        if (last.startsWith("@")) {
+            attribute = name(last.substring(1).trim(), namespaces, path);
+            if (attribute == null)
+                return null;
+            target = ATTRIBUTE;
+            count--;
+        } else if (last.equals("text()")) {
+            target = TEXT;
+            count--;
+        }
+        if (count == 0)
+            return null;
+        Step[] steps = new Step[count];
+        for (int n = 0; n < count; n++) {
+            steps[n] = step(tokens[n].trim(), namespaces, path);
+            if (steps[n] == null)
+                return null;
+        }
+        return new StreamingXPath(path, steps, target, attribute);
+    }
+
+    private static Step step(String token, Map<String, String> namespaces, String path) throws XPathException {
+        int b = token.indexOf('[');
+        String[] name = name(b == -1 ? token : token.substring(0, b).trim(), namespaces, path);
+        if (name == null)
+            return null;
+        List<String[]> attributes = new ArrayList<String[]>();
+        List<String> values = new ArrayList<String>();
+        while (b != -1) {
+            int e = token.indexOf(']', b);
+            if (e == -1)
+                return null;
+            String pred = token.substring(b + 1, e).trim();
+            if (!pred.startsWith("@"))
+                return null;
+            pred = pred.substring(1);
+            String value = null;
+            int eq = pred.indexOf('=');
+            if (eq != -1) {
+                value = pred.substring(eq + 1).trim();
+                pred = pred.substring(0, eq);
+                if (value.length() < 2 || (value.charAt(0) != '\'' && value.charAt(0) != '"')
+                    || value.charAt(value.length() - 1) != value.charAt(0)
+                    || value.indexOf(value.charAt(0), 1) != value.length() - 1)
+                    return null;
+                value = value.substring(1, value.length() - 1);
+            }
+            String[] attr = name(pred.trim(), namespaces, path);
+            if (attr == null)
+                return null;
+            attributes.add(attr);
+            values.add(value);
+            String rest = token.substring(e + 1).trim();
+            if (rest.length() == 0)
+                break;
+            if (rest.charAt(0) != '[')
+                return null;
+            b = token.indexOf('[', e);
+        }
+        return new Step(name, attributes.toArray(new String[attributes.size()][]), values
+            .toArray(new String[values.size()]));
+    }
+
+    /**
+     * Resolves a name test to a {namespace, local name} pair. A null namespace matches any namespace and a null local
+     * name matches any name. Returns null if the name test is not a supported form
+     */
+    private static String[] name(String name, Map<String, String> namespaces, String path) throws XPathException {
+        if ("*".equals(name))
+            return new String[] {null, null};
+        int c = name.indexOf(':');
+        String local = c == -1 ? name : name.substring(c + 1);
+        if (!isNCName(local) && !(c != -1 && "*".equals(local)))
+            return null;
+        if (c == -1)
+            return new String[] {"", local};
+        String prefix = name.substring(0, c);
+        if (!isNCName(prefix))
+            return null;
+        String ns = null;
+        if (namespaces != null) {
+            ns = namespaces.get(prefix);
+            if (ns == null)
+                throw new XPathException(Localizer.sprintf("UNBOUND.XPATH.PREFIX", prefix, path));
+        }
+        return new String[] {ns, "*".equals(local) ? null : local};
+    }
+
+    private static boolean isNCName(String name) {
+        if (name.length() == 0)
+            return false;
+        for (int n = 0; n < name.length(); n++) {
+            char c = name.charAt(n);
+            if (!(Character.isLetter(c) || c == '_' || (n > 0 && (Character.isDigit(c) || c == '-' || c == '.'))))
+                return false;
+        }
+        return true;
+    }
+
+    private static final class Step {
+        private final String[] name;
+        private final String[][] attributes;
+        private final String[] values;
+
+        Step(String[] name, String[][] attributes, String[] values) {
+            this.name = name;
+            this.attributes = attributes;
+            this.values = values;
+        }
+
+        boolean matches(XMLStreamReader reader) {
+            if (!StreamingXPath.matches(name, reader.getNamespaceURI(), reader.getLocalName()))
+                return false;
+            int count = reader.getAttributeCount();
+            for (int a = 0; a < attributes.length; a++) {
+                boolean found = false;
+                for (int n = 0; n < count && !found; n++) {
+                    found =
+                        StreamingXPath.matches(attributes[a], reader.getAttributeNamespace(n), reader
+                            .getAttributeLocalName(n))
+                            && (values[a] == null || values[a].equals(reader.getAttributeValue(n)));
+                }
+                if (!found)
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class InputFactoryHolder {
+        private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+        static {
+            FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+            FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        }
+    }
+}
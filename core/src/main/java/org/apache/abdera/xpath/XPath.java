@@ -93,4 +93,16 @@ public interface XPath {
      */
     Number numericValueOf(String path, Base base, Map<String, String> namespaces) throws XPathException;
 
+    /**
+     * Compile the specified Path using the default Namespaces mapping. The returned expression can be evaluated
+     * repeatedly, from any thread, without being parsed again
+     */
+    CompiledXPath compile(String path) throws XPathException;
+
+    /**
+     * Compile the specified Path using the specified Namespaces mapping. The returned expression can be evaluated
+     * repeatedly, from any thread, without being parsed again
+     */
+    CompiledXPath compile(String path, Map<String, String> namespaces) throws XPathException;
+
 }
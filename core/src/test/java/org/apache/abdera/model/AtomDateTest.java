@@ -7,6 +7,8 @@ import static org.junit.Assert.assertNotSame;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
 
 import org.junit.Test;
 
@@ -96,6 +98,52 @@ public class AtomDateTest {
         assertEquals(date, atomDate.getTime());
     }
 
+    @Test
+    public void testParseTime() {
+        assertEquals(1071340202000L, AtomDate.parseTime("2003-12-13T18:30:02Z"));
+        assertEquals(1071340202250L, AtomDate.parseTime("2003-12-13T18:30:02.25Z"));
+        assertEquals(1071340202123L, AtomDate.parseTime("2003-12-13t18:30:02.123456z"));
+        assertEquals(1071336602000L, AtomDate.parseTime("2003-12-13T18:30:02+01:00"));
+        assertEquals(1071336602250L, AtomDate.parseTime("2003-12-13T18:30:02.25+01:00"));
+        assertEquals(1071345602000L, AtomDate.parseTime("2003-12-13T18:30:02-0130"));
+        assertEquals(1071340202000L, AtomDate.parseTime(new StringBuilder(" 2003-12-13T18:30:02Z ")));
+        assertEquals(1070236800000L, AtomDate.parseTime("2003-12T"));
+        assertEquals(951782400000L, AtomDate.parseTime("2000-02-29T00:00:00Z"));
+        assertEquals(-2208988800000L, AtomDate.parseTime("1900-01-01T00:00:00Z"));
+        assertEquals(AtomDate.parseTime("2004-01-01T00:00:00Z"), AtomDate.parseTime("2003-12-31T24:00:00Z"));
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("2003-12-13T18:30:02.250Z", AtomDate.format(1071340202250L));
+        assertEquals("1970-01-01T00:00:00.000Z", AtomDate.format(0L));
+        assertEquals("1969-12-31T23:59:59.999Z", AtomDate.format(-1L));
+        assertEquals("0999-01-01T00:00:00.000Z", AtomDate.format(AtomDate.parseTime("0999-01-01T00:00:00Z")));
+
+        char[] buf = new char[AtomDate.MAX_FORMAT_LENGTH + 2];
+        buf[0] = '[';
+        int end = AtomDate.format(1071340202250L, buf, 1);
+        assertEquals(25, end);
+        assertEquals("[2003-12-13T18:30:02.250Z", new String(buf, 0, end));
+
+        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        Random random = new Random(42);
+        for (int n = 0; n < 1000; n++) {
+            long time = (long)(random.nextDouble() * 8000000000000L) - 2000000000000L;
+            c.setTimeInMillis(time);
+            String value = AtomDate.format(time);
+            assertEquals(c.get(Calendar.YEAR), Integer.parseInt(value.substring(0, 4)));
+            assertEquals(c.get(Calendar.MONTH) + 1, Integer.parseInt(value.substring(5, 7)));
+            assertEquals(c.get(Calendar.DATE), Integer.parseInt(value.substring(8, 10)));
+            assertEquals(time, AtomDate.parseTime(value));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingTime() {
+        AtomDate.parseTime("2003-12-13");
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testIllegalDateFormat() {
         String date = "";
@@ -18,6 +18,7 @@
 package org.apache.abdera.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import org.apache.abdera.factory.Factory;
 import org.junit.Test;
@@ -35,6 +36,31 @@ public class AbstractParserOptionsTest {
         }
     }
 
+    @Test
+    public void testCloneEntities() throws Exception {
+        TestParserOptions options = new TestParserOptions();
+        TestParserOptions copy = (TestParserOptions)options.clone();
+        options.registerEntity("foo", "a");
+        copy.registerEntity("bar", "b");
+        assertEquals("a", options.resolveEntity("foo"));
+        assertNull(options.resolveEntity("bar"));
+        assertNull(copy.resolveEntity("foo"));
+        assertEquals("b", copy.resolveEntity("bar"));
+
+        // copies of shared options never write to the shared entity map
+        options.share();
+        copy = (TestParserOptions)options.clone();
+        TestParserOptions other = (TestParserOptions)options.clone();
+        copy.registerEntity("baz", "c");
+        assertEquals("c", copy.resolveEntity("baz"));
+        assertEquals("a", copy.resolveEntity("foo"));
+        assertNull(options.resolveEntity("baz"));
+        assertNull(other.resolveEntity("baz"));
+        options.registerEntity("qux", "d");
+        assertEquals("d", options.resolveEntity("qux"));
+        assertNull(other.resolveEntity("qux"));
+    }
+
     @Test
     public void checkAllEntities() throws Exception {
         TestParserOptions fomParserOptions = new TestParserOptions();
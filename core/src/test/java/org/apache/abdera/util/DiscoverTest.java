@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DiscoverTest {
+
+    @Test
+    public void testLocateIsCached() throws Exception {
+        File dir = File.createTempFile("discover", "");
+        dir.delete();
+        File services = new File(dir, "META-INF/services");
+        services.mkdirs();
+        File file = new File(services, "org.apache.abdera.test.Service");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("# comment\n\njava.util.ArrayList\n java.util.LinkedList \n".getBytes("UTF-8"));
+        out.close();
+        ClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()}, null);
+        try {
+            List<String> specs = Discover.locateSpecs("org.apache.abdera.test.Service", loader);
+            assertEquals(2, specs.size());
+            assertEquals("java.util.LinkedList", specs.get(1));
+
+            file.delete();
+            assertSame(specs, Discover.locateSpecs("org.apache.abdera.test.Service", loader));
+            List<Object> instances = new ArrayList<Object>();
+            for (Object instance : Discover.locate("org.apache.abdera.test.Service", loader))
+                instances.add(instance);
+            assertEquals(2, instances.size());
+            assertTrue(instances.get(0) instanceof ArrayList);
+
+            Discover.clearCache();
+            assertEquals(0, Discover.locateSpecs("org.apache.abdera.test.Service", loader).size());
+        } finally {
+            services.delete();
+            new File(dir, "META-INF").delete();
+            dir.delete();
+        }
+    }
+
+}
@@ -32,6 +32,31 @@ import org.junit.Test;
 
 public class MimeTypeHelperTest {
 
+    @Test
+    public void testIsMatchStrings() {
+        assertTrue(MimeTypeHelper.isMatch("text/plain", "TEXT/Plain; charset=utf-8"));
+        assertTrue(MimeTypeHelper.isMatch("*/*", "image/png"));
+        assertTrue(MimeTypeHelper.isMatch("image/png", "image/*"));
+        assertTrue(MimeTypeHelper.isMatch("text/*", "*/html"));
+        assertFalse(MimeTypeHelper.isMatch("*/xml", "text/html"));
+        assertFalse(MimeTypeHelper.isMatch("text/plain", "text/html"));
+        assertFalse(MimeTypeHelper.isMatch("text/plain", "not a media type"));
+        assertFalse(MimeTypeHelper.isMatch(null, "text/plain"));
+        assertFalse(MimeTypeHelper.isMatch("", "text/plain"));
+        assertTrue(MimeTypeHelper.isMatch(null, ""));
+        for (int n = 0; n < 1000; n++)
+            assertTrue(MimeTypeHelper.isMatch("application/x-" + n, "application/*"));
+        assertTrue(MimeTypeHelper.isMatch("text/plain", "text/plain"));
+
+        assertTrue(MimeTypeHelper.isXml("application/rss+xml"));
+        assertTrue(MimeTypeHelper.isXml("Text/XML"));
+        assertFalse(MimeTypeHelper.isXml("text/html"));
+        assertFalse(MimeTypeHelper.isMimeType("text"));
+        assertEquals(-1, MimeTypeHelper.compare("image/*", "image/png"));
+        assertEquals(1, MimeTypeHelper.compare("image/png", "image/*"));
+        assertEquals(0, MimeTypeHelper.compare("image/png", "text/*"));
+    }
+
     @Test
     public void testCondense() {
         String[] types = MimeTypeHelper.condense("image/png", "image/gif", "image/png", "image/*");
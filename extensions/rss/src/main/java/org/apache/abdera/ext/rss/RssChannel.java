@@ -119,6 +119,14 @@ public class RssChannel extends ExtensibleElementWrapper {
         throw new UnsupportedOperationException("Modifications are not allowed");
     }
 
+    public void addEntries(Iterable<Entry> entries) {
+        throw new UnsupportedOperationException("Modifications are not allowed");
+    }
+
+    public void insertEntries(Iterable<Entry> entries) {
+        throw new UnsupportedOperationException("Modifications are not allowed");
+    }
+
     public void sortEntries(Comparator<Entry> comparator) {
         throw new UnsupportedOperationException("Modifications are not allowed");
     }
@@ -69,6 +69,11 @@ public class RssFeed extends ExtensibleElementWrapper implements Feed {
         return getChannel().addEntry();
     }
 
+    public Feed addEntries(Iterable<Entry> entries) {
+        getChannel().addEntries(entries);
+        return this;
+    }
+
     public Source getAsSource() {
         throw new UnsupportedOperationException("Converting to source is not supported");
     }
@@ -90,6 +95,11 @@ public class RssFeed extends ExtensibleElementWrapper implements Feed {
         return getChannel().insertEntry();
     }
 
+    public Feed insertEntries(Iterable<Entry> entries) {
+        getChannel().insertEntries(entries);
+        return this;
+    }
+
     public Feed sortEntries(Comparator<Entry> comparator) {
         getChannel().sortEntries(comparator);
         return this;
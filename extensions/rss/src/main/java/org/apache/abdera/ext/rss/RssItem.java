@@ -616,4 +616,12 @@ public class RssItem extends ExtensibleElementWrapper implements Entry, IRIEleme
     public Control addControl() {
         throw new UnsupportedOperationException("Modifications are not allowed");
     }
+
+    public Entry setSerializationCached(boolean cached) {
+        return this;
+    }
+
+    public boolean isSerializationCached() {
+        return false;
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.parser.stax;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.abdera.model.Document;
+import org.apache.abdera.model.Element;
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.model.Feed;
+import org.apache.abdera.parser.AsyncParseListener;
+import org.apache.abdera.parser.ParseException;
+import org.apache.abdera.parser.ParserOptions;
+import org.apache.abdera.parser.stax.util.FOMFeedSplitter;
+import org.apache.abdera.util.AbstractAsyncParse;
+
+/**
+ * Scans the bytes of a feed as they arrive and parses each top-level entry as soon as it is complete, so the entries
+ * are available to the listener while the rest of the feed is still arriving. Once the whole document has been written
+ * the feed is assembled from the entries that have already been parsed. If that is not possible the whole document is
+ * parsed again and every entry of the resulting feed is reported to the listener, including entries that were already
+ * reported from the partial input.
+ */
+class FOMAsyncParse<T extends Element> extends AbstractAsyncParse<T> {
+
+    private static final int HEAD_SIZE = 200;
+
+    private final FOMParser parser;
+    private final String base;
+    private final ParserOptions options;
+    private FOMFeedSplitter splitter = new FOMFeedSplitter();
+    private boolean detected = false;
+    private int parsed = 0;
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    FOMAsyncParse(FOMParser parser, String base, ParserOptions options, AsyncParseListener<T> listener) {
+        super(listener);
+        this.parser = parser;
+        this.base = base;
+        this.options = options;
+    }
+
+    @Override
+    protected void update(byte[] buf, int len) throws ParseException {
+        scan(buf, len, false);
+    }
+
+    private void scan(byte[] buf, int len, boolean last) throws ParseException {
+        if (splitter == null)
+            return;
+        if (!detected) {
+            // wait until the XML declaration can be read
+            if (len < HEAD_SIZE && !last)
+                return;
+            try {
+                detected = true;
+                if (!parser.canSplit(buf, len, options)) {
+                    splitter = null;
+                    return;
+                }
+            } catch (IOException e) {
+                throw new ParseException(e);
+            }
+        }
+        if (!splitter.update(buf, len, last)) {
+            splitter = null;
+            return;
+        }
+        while (parsed < splitter.getEntryCount()) {
+            for (Entry entry : parser.parseFragment(splitter.getFragment(parsed, parsed + 1), base, options)) {
+                entries.add(entry);
+                entry(entry);
+            }
+            parsed++;
+        }
+    }
+
+    @Override
+    protected Document<T> parse(byte[] buf, int len) throws ParseException {
+        scan(buf, len, true);
+        if (splitter != null && splitter.isComplete()) {
+            Document<T> document = parser.assemble(splitter.getSkeleton(), entries, base, options);
+            if (document != null)
+                return document;
+        }
+        // build the whole document now, so that errors are reported through the Future
+        Document<T> document = parser.parse(new ByteArrayInputStream(buf, 0, len), base, options);
+        document.complete();
+        if (document.getRoot() instanceof Feed) {
+            // the entries reported so far are not part of this document, so report the ones that are
+            for (Entry entry : ((Feed)document.getRoot()).getEntries())
+                entry(entry);
+        }
+        return document;
+    }
+
+}
@@ -40,6 +40,11 @@ public class FOMAttribute implements Attribute {
     }
 
     public Attribute setText(String text) {
+        if (attr.getOwner() != null) {
+            FOMElement.checkModifiable(attr.getOwner());
+            if (attr.getOwner() instanceof FOMElement)
+                ((FOMElement)attr.getOwner()).attributesChanged();
+        }
         attr.setAttributeValue(text);
         return this;
     }
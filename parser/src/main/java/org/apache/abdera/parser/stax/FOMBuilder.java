@@ -17,6 +17,8 @@
  */
 package org.apache.abdera.parser.stax;
 
+import java.io.Closeable;
+
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamReader;
 
@@ -39,7 +41,15 @@ public class FOMBuilder extends StAXOMBuilder implements Constants {
     private final ParserOptions parserOptions;
 
     public FOMBuilder(FOMFactory factory, XMLStreamReader parser, ParserOptions parserOptions) {
-        super(factory, new FOMStAXFilter(parser, parserOptions));
+        this(factory, parser, parserOptions, null);
+    }
+
+    /**
+     * @param source The stream the parser reads from, closed if parsing stops early because of the entry limit set in
+     *            the parser options
+     */
+    public FOMBuilder(FOMFactory factory, XMLStreamReader parser, ParserOptions parserOptions, Closeable source) {
+        super(factory, new FOMStAXFilter(parser, parserOptions, source));
         this.parserOptions = parserOptions;
         this.fomfactory = factory;
     }
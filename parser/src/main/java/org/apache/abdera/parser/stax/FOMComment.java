@@ -38,6 +38,7 @@ public class FOMComment extends OMCommentImpl implements Comment {
     }
 
     public Comment setText(String text) {
+        FOMElement.checkModifiable(this);
         super.setValue(text);
         return this;
     }
@@ -68,6 +68,7 @@ public class FOMContent extends FOMExtensibleElement implements Content {
 
     private void init(Type type) {
         this.type = type;
+        discardResolved();
         if (Type.TEXT.equals(type))
             setAttributeValue(TYPE, "text");
         else if (Type.HTML.equals(type))
@@ -211,7 +212,7 @@ public class FOMContent extends FOMExtensibleElement implements Content {
         } else if (Type.HTML.equals(type)) {
             val = getText();
         } else if (Type.XHTML.equals(type)) {
-            FOMDiv div = (FOMDiv)this.getFirstChildWithName(Constants.DIV);
+            FOMDiv div = (FOMDiv)this._getFirstChildWithName(Constants.DIV);
             if (div != null)
                 val = div.getInternalValue();
         } else if (Type.XML.equals(type)) {
@@ -225,6 +226,7 @@ public class FOMContent extends FOMExtensibleElement implements Content {
     }
 
     public <T extends Element> T setText(Content.Type type, String value) {
+        checkModifiable();
         complete();
         init(type);
         if (value != null) {
@@ -299,7 +301,7 @@ public class FOMContent extends FOMExtensibleElement implements Content {
 
     public String getWrappedValue() {
         if (Type.XHTML.equals(type)) {
-            return this.getFirstChildWithName(Constants.DIV).toString();
+            return this._getFirstChildWithName(Constants.DIV).toString();
         } else {
             return getText();
         }
@@ -340,26 +342,32 @@ public class FOMContent extends FOMExtensibleElement implements Content {
     }
 
     @Override
-    public IRI getResolvedBaseUri() {
+    protected IRI computeResolvedBaseUri(IRI baseUri) {
         if (Type.XHTML.equals(type)) {
             Element el = getValueElement();
             if (el != null) {
                 if (el.getAttributeValue(BASE) != null) {
-                    return super.getResolvedBaseUri().resolve(el.getAttributeValue(BASE));
+                    return super.computeResolvedBaseUri(baseUri).resolve(el.getAttributeValue(BASE));
                 }
             }
         }
-        return super.getResolvedBaseUri();
+        return super.computeResolvedBaseUri(baseUri);
     }
 
     @Override
-    public String getLanguage() {
+    protected String computeLanguage(String parentLang) {
         if (Type.XHTML.equals(type)) {
             Element el = getValueElement();
             if (el.getAttributeValue(LANG) != null)
                 return el.getAttributeValue(LANG);
         }
-        return super.getLanguage();
+        return super.computeLanguage(parentLang);
+    }
+
+    @Override
+    protected void childrenChanged() {
+        super.childrenChanged();
+        discardResolved();
     }
 
     @Override
@@ -34,7 +34,7 @@ import org.apache.axiom.om.OMXMLParserWrapper;
 public class FOMDateTime extends FOMElement implements DateTime {
 
     private static final long serialVersionUID = -6611503566172011733L;
-    private AtomDate value;
+    private volatile AtomDate value;
 
     protected FOMDateTime(String name, OMNamespace namespace, OMContainer parent, OMFactory factory) throws OMException {
         super(name, namespace, parent, factory);
@@ -73,7 +73,7 @@ public class FOMDateTime extends FOMElement implements DateTime {
         complete();
         value = null;
         if (date != null)
-            ((Element)this).setText(AtomDate.valueOf(date).getValue());
+            ((Element)this).setText(AtomDate.format(date.getTime()));
         else
             _removeAllChildren();
         return this;
@@ -83,7 +83,7 @@ public class FOMDateTime extends FOMElement implements DateTime {
         complete();
         value = null;
         if (date != null)
-            ((Element)this).setText(AtomDate.valueOf(date).getValue());
+            ((Element)this).setText(AtomDate.format(date.getTimeInMillis()));
         else
             _removeAllChildren();
         return this;
@@ -92,7 +92,7 @@ public class FOMDateTime extends FOMElement implements DateTime {
     public DateTime setTime(long date) {
         complete();
         value = null;
-        ((Element)this).setText(AtomDate.valueOf(date).getValue());
+        ((Element)this).setText(AtomDate.format(date));
         return this;
     }
 
@@ -100,7 +100,7 @@ public class FOMDateTime extends FOMElement implements DateTime {
         complete();
         value = null;
         if (date != null)
-            ((Element)this).setText(AtomDate.valueOf(date).getValue());
+            ((Element)this).setText(AtomDate.format(AtomDate.parseTime(date)));
         else
             _removeAllChildren();
         return this;
@@ -63,6 +63,7 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     protected String language = null;
     protected String slug = null;
     protected boolean preserve = true;
+    protected volatile boolean frozen = false;
 
     public FOMDocument() {
         super(new FOMFactory());
@@ -86,6 +87,7 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     }
 
     public Document<T> setRoot(T root) {
+        checkModifiable();
         if (root instanceof OMElement) {
             this.setOMDocumentElement((OMElement)root);
         } else if (root instanceof ElementWrapper) {
@@ -99,6 +101,7 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     }
 
     public Document<T> setBaseUri(String base) {
+        checkModifiable();
         this.base = new IRI(base);
         return this;
     }
@@ -158,6 +161,7 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     }
 
     public Document<T> setContentType(String contentType) {
+        checkModifiable();
         try {
             this.contentType = new MimeType(contentType);
             if (this.contentType.getParameter("charset") != null)
@@ -173,6 +177,7 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     }
 
     public Document<T> setLastModified(Date lastModified) {
+        checkModifiable();
         this.lastModified = lastModified;
         return this;
     }
@@ -235,6 +240,7 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     }
 
     public Document<T> addProcessingInstruction(String target, String value) {
+        checkModifiable();
         OMProcessingInstruction pi = this.getOMFactory().createOMProcessingInstruction(null, target, value);
         if (this.getOMDocumentElement() != null) {
             this.getOMDocumentElement().insertSiblingBefore(pi);
@@ -254,6 +260,7 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     }
 
     public <X extends Base> X addComment(String value) {
+        checkModifiable();
         OMComment comment = this.getOMFactory().createOMComment(null, value);
         if (this.getOMDocumentElement() != null) {
             this.getOMDocumentElement().insertSiblingBefore(comment);
@@ -268,11 +275,13 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     }
 
     public Document<T> setEntityTag(EntityTag tag) {
+        checkModifiable();
         this.etag = tag;
         return this;
     }
 
     public Document<T> setEntityTag(String tag) {
+        checkModifiable();
         this.etag = new EntityTag(tag);
         return this;
     }
@@ -287,6 +296,7 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     }
 
     public Document<T> setLanguage(String lang) {
+        checkModifiable();
         this.language = lang;
         return this;
     }
@@ -296,6 +306,7 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     }
 
     public Document<T> setSlug(String slug) {
+        checkModifiable();
         this.slug = slug;
         return this;
     }
@@ -305,6 +316,7 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
     }
 
     public Document<T> setMustPreserveWhitespace(boolean preserve) {
+        checkModifiable();
         this.preserve = preserve;
         return this;
     }
@@ -328,6 +340,77 @@ public class FOMDocument<T extends Element> extends OMDocumentImpl implements Do
         return (X)this;
     }
 
+    public synchronized Document<T> freeze() {
+        if (!frozen) {
+            build();
+            OMXMLParserWrapper builder = getBuilder();
+            if (builder != null)
+                builder.close();
+            frozen = true;
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Throws a FOMReadOnlyException if the document has been frozen
+     */
+    protected void checkModifiable() {
+        if (frozen)
+            throw new FOMReadOnlyException();
+    }
+
+    @Override
+    public void addChild(OMNode node) {
+        checkModifiable();
+        super.addChild(node);
+    }
+
+    @Override
+    public void addChild(OMNode node, boolean fromBuilder) {
+        checkModifiable();
+        super.addChild(node, fromBuilder);
+    }
+
+    @Override
+    public void removeChildren() {
+        checkModifiable();
+        super.removeChildren();
+    }
+
+    @Override
+    public void setOMDocumentElement(OMElement element) {
+        checkModifiable();
+        super.setOMDocumentElement(element);
+    }
+
+    @Override
+    public void setCharsetEncoding(String charset) {
+        checkModifiable();
+        super.setCharsetEncoding(charset);
+    }
+
+    @Override
+    public void setXMLEncoding(String encoding) {
+        checkModifiable();
+        super.setXMLEncoding(encoding);
+    }
+
+    @Override
+    public void setXMLVersion(String version) {
+        checkModifiable();
+        super.setXMLVersion(version);
+    }
+
+    @Override
+    public void setStandalone(String standalone) {
+        checkModifiable();
+        super.setStandalone(standalone);
+    }
+
     public void writeTo(String writer, OutputStream out) throws IOException {
         writeTo(getFactory().getAbdera().getWriterFactory().getWriter(writer), out);
     }
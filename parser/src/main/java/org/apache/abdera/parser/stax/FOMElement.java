@@ -76,6 +76,40 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
 
     private static final long serialVersionUID = 8024257594220911953L;
 
+    /**
+     * Elements with fewer child elements than this are searched linearly rather than indexed
+     */
+    private static final int INDEX_THRESHOLD = 8;
+
+    private static final Map<QName, List<OMElement>> NO_INDEX = Collections.emptyMap();
+
+    private transient volatile Map<QName, List<OMElement>> childIndex;
+
+    private transient Resolved resolvedBase;
+
+    private transient Resolved resolvedLanguage;
+
+    /**
+     * A memoized xml:base or xml:lang value, together with the parent and the inherited value it was derived from. The
+     * inherited value is the parent's own Resolved instance where there is one, so a change anywhere along the
+     * ancestor chain is detected by identity comparisons alone.
+     */
+    private static final class Resolved {
+        private final OMContainer parent;
+        private final Object inherited;
+        private final Object value;
+
+        Resolved(OMContainer parent, Object inherited, Object value) {
+            this.parent = parent;
+            this.inherited = inherited;
+            this.value = value;
+        }
+
+        boolean isValid(OMContainer parent, Object inherited) {
+            return this.parent == parent && this.inherited == inherited;
+        }
+    }
+
     protected FOMElement(String name, OMNamespace namespace, OMContainer parent, OMFactory factory) throws OMException {
         super(parent, name, namespace, null, factory, true);
     }
@@ -172,7 +206,7 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
     }
 
     public <T extends Element> T getFirstChild(QName qname) {
-        return (T)getWrapped((Element)this.getFirstChildWithName(qname));
+        return (T)getWrapped((Element)this._getFirstChildWithName(qname));
     }
 
     public Lang getLanguageTag() {
@@ -181,10 +215,40 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
     }
 
     public String getLanguage() {
+        return (String)resolveLanguage().value;
+    }
+
+    private Resolved resolveLanguage() {
+        OMContainer parent = getParent();
+        Object inherited = null;
+        String parentLang = null;
+        Base wrapper = getParentElement();
+        if (wrapper instanceof FOMElement && wrapper == parent) {
+            Resolved resolved = ((FOMElement)parent).resolveLanguage();
+            inherited = resolved;
+            parentLang = (String)resolved.value;
+        } else if (wrapper instanceof Element) {
+            parentLang = ((Element)wrapper).getLanguage();
+            inherited = parentLang;
+        } else if (wrapper instanceof Document) {
+            parentLang = ((Document)wrapper).getLanguage();
+            inherited = parentLang;
+        }
+        Resolved resolved = resolvedLanguage;
+        if (resolved == null || !resolved.isValid(parent, inherited)) {
+            resolved = new Resolved(parent, inherited, computeLanguage(parentLang));
+            resolvedLanguage = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * Compute the language of this element from the language inherited from its parent. The result is memoized until
+     * the attributes or the children of this element, or the language of the parent, change.
+     */
+    protected String computeLanguage(String parentLang) {
         String lang = getAttributeValue(LANG);
-        Base parent = this.getParentElement();
-        return (lang != null) ? lang : (parent != null && parent instanceof Element) ? ((Element)parent).getLanguage()
-            : (parent != null && parent instanceof Document) ? ((Document)parent).getLanguage() : null;
+        return (lang != null) ? lang : parentLang;
     }
 
     public <T extends Element> T setLanguage(String language) {
@@ -209,16 +273,41 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
     }
 
     public IRI getResolvedBaseUri() {
+        return (IRI)resolveBaseUri().value;
+    }
+
+    private Resolved resolveBaseUri() {
+        OMContainer parent = getParent();
+        Object inherited = null;
         IRI baseUri = null;
+        if (parent instanceof FOMElement) {
+            Resolved resolved = ((FOMElement)parent).resolveBaseUri();
+            inherited = resolved;
+            baseUri = (IRI)resolved.value;
+        } else if (parent instanceof Element) {
+            baseUri = ((Element)parent).getResolvedBaseUri();
+            inherited = baseUri;
+        } else if (parent instanceof Document) {
+            baseUri = ((Document)parent).getBaseUri();
+            inherited = baseUri;
+        }
+        Resolved resolved = resolvedBase;
+        if (resolved == null || !resolved.isValid(parent, inherited)) {
+            resolved = new Resolved(parent, inherited, computeResolvedBaseUri(baseUri));
+            resolvedBase = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * Compute the resolved base URI of this element from the resolved base URI of its parent. The result is memoized
+     * until the attributes or the children of this element, or the base URI of the parent, change.
+     */
+    protected IRI computeResolvedBaseUri(IRI baseUri) {
         IRI uri = _getUriValue(getAttributeValue(BASE));
         if (IRIHelper.isJavascriptUri(uri) || IRIHelper.isMailtoUri(uri)) {
             uri = null;
         }
-        OMContainer parent = getParent();
-        if (parent instanceof Element)
-            baseUri = ((Element)parent).getResolvedBaseUri();
-        else if (parent instanceof Document)
-            baseUri = ((Document)parent).getBaseUri();
         if (uri != null && baseUri != null) {
             uri = baseUri.resolve(uri);
         } else if (uri == null) {
@@ -245,6 +334,8 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
     }
 
     public <T extends Element> T setAttributeValue(QName qname, String value) {
+        checkModifiable();
+        attributesChanged();
         OMAttribute attr = this.getAttribute(qname);
         if (attr != null && value != null) {
             attr.setAttributeValue(value);
@@ -272,15 +363,164 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
 
     protected <E extends Element> List<E> _getChildrenAsSet(QName qname) {
         FOMFactory factory = (FOMFactory)getFactory();
-        return new FOMList(new FOMElementIteratorWrapper(factory, getChildrenWithName(qname)));
+        List<OMElement> children = getIndexedChildren(qname);
+        if (children != null && !isIndexed(children, qname)) {
+            childIndex = null;
+            children = null;
+        }
+        Iterator<?> i = (children != null) ? children.iterator() : getChildrenWithName(qname);
+        return new FOMList(new FOMElementIteratorWrapper(factory, i));
+    }
+
+    /**
+     * Return the first child element with the given name. Unlike the Axiom getFirstChildWithName method, which always
+     * scans the children, this consults the child index. The index is only maintained by the FOM mutators: an indexed
+     * child that has since been moved or renamed through the Axiom API is detected and the children are scanned
+     * instead, but a child inserted through the Axiom API (e.g. with OMNode.insertSiblingAfter) is not seen until the
+     * children are next changed through the FOM API.
+     */
+    protected OMElement _getFirstChildWithName(QName qname) {
+        List<OMElement> children = getIndexedChildren(qname);
+        if (children == null)
+            return getFirstChildWithName(qname);
+        if (children.isEmpty())
+            return null;
+        OMElement element = children.get(0);
+        if (isIndexed(element, qname))
+            return element;
+        childIndex = null;
+        return getFirstChildWithName(qname);
+    }
+
+    private boolean isIndexed(OMElement element, QName qname) {
+        return element.getParent() == this && qname.equals(element.getQName());
+    }
+
+    private boolean isIndexed(List<OMElement> children, QName qname) {
+        for (OMElement element : children) {
+            if (!isIndexed(element, qname))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return the child elements with the given name from the child index, or null if the index cannot be used. The
+     * index is only available once the element has been completely parsed. It is built on first use and discarded
+     * whenever the child elements change through the FOM API. Names without a namespace are not indexed because Axiom
+     * matches them against the local name alone.
+     */
+    private List<OMElement> getIndexedChildren(QName qname) {
+        if (qname == null || qname.getNamespaceURI().length() == 0)
+            return null;
+        Map<QName, List<OMElement>> index = childIndex;
+        if (index == null) {
+            if (!isComplete())
+                return null;
+            index = buildChildIndex();
+            childIndex = index;
+        }
+        if (index == NO_INDEX)
+            return null;
+        List<OMElement> children = index.get(qname);
+        return (children != null) ? children : Collections.<OMElement> emptyList();
+    }
+
+    private Map<QName, List<OMElement>> buildChildIndex() {
+        int count = 0;
+        for (OMNode node = getFirstOMChild(); node != null; node = node.getNextOMSibling()) {
+            if (node instanceof OMElement)
+                count++;
+        }
+        if (count < INDEX_THRESHOLD)
+            return NO_INDEX;
+        Map<QName, List<OMElement>> index = new HashMap<QName, List<OMElement>>();
+        for (OMNode node = getFirstOMChild(); node != null; node = node.getNextOMSibling()) {
+            if (node instanceof OMElement) {
+                OMElement element = (OMElement)node;
+                List<OMElement> children = index.get(element.getQName());
+                if (children == null) {
+                    children = new ArrayList<OMElement>(1);
+                    index.put(element.getQName(), children);
+                }
+                children.add(element);
+            }
+        }
+        for (Map.Entry<QName, List<OMElement>> entry : index.entrySet())
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        return index;
+    }
+
+    /**
+     * Called whenever the child elements of this element, or the attributes of one of its child elements, change.
+     * Subclasses that cache information about their children must discard it here.
+     */
+    protected void childrenChanged() {
+        childIndex = null;
+    }
+
+    /**
+     * Called after the given node has been added to this element. By default, equivalent to childrenChanged()
+     */
+    protected void childAdded(OMNode node) {
+        childrenChanged();
+    }
+
+    /**
+     * Called after the given node has been removed from this element. By default, equivalent to childrenChanged()
+     */
+    protected void childRemoved(OMNode node) {
+        childrenChanged();
+    }
+
+    /**
+     * Called whenever the attributes of this element change
+     */
+    protected void attributesChanged() {
+        discardResolved();
+        childrenChanged(getParent());
+    }
+
+    /**
+     * Discard the memoized base URI and language of this element
+     */
+    protected void discardResolved() {
+        resolvedBase = null;
+        resolvedLanguage = null;
+    }
+
+    static void childrenChanged(OMContainer container) {
+        if (container instanceof FOMElement)
+            ((FOMElement)container).childrenChanged();
+    }
+
+    static void childAdded(OMContainer container, OMNode node) {
+        if (container instanceof FOMElement)
+            ((FOMElement)container).childAdded(node);
+    }
+
+    static void childRemoved(OMContainer container, OMNode node) {
+        if (container instanceof FOMElement)
+            ((FOMElement)container).childRemoved(node);
+    }
+
+    /**
+     * Insert the node before the given sibling, notifying both the old and the new parent of the change
+     */
+    static void insertSiblingBefore(OMNode sibling, OMNode node) {
+        OMContainer parent = node.getParent();
+        sibling.insertSiblingBefore(node);
+        childRemoved(parent, node);
+        childAdded(sibling.getParent(), node);
     }
 
     protected void _setChild(QName qname, OMElement element) {
-        OMElement e = getFirstChildWithName(qname);
+        checkModifiable();
+        OMElement e = _getFirstChildWithName(qname);
         if (e == null && element != null) {
             addChild(element);
         } else if (e != null && element != null) {
-            e.insertSiblingBefore(element);
+            insertSiblingBefore(e, element);
             e.discard();
         } else if (e != null && element == null) {
             e.discard();
@@ -372,7 +612,7 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
 
     protected void _setElementValue(QName qname, String value) {
         complete();
-        OMElement element = this.getFirstChildWithName(qname);
+        OMElement element = this._getFirstChildWithName(qname);
         if (element != null && value != null) {
             element.setText(value);
         } else if (element != null && value == null) {
@@ -389,14 +629,14 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
 
     protected String _getElementValue(QName qname) {
         String value = null;
-        OMElement element = this.getFirstChildWithName(qname);
+        OMElement element = this._getFirstChildWithName(qname);
         if (element != null)
             value = element.getText();
         return getMustPreserveWhitespace() || value == null ? value : value.trim();
     }
 
     protected <T extends Text> T getTextElement(QName qname) {
-        return (T)getFirstChildWithName(qname);
+        return (T)_getFirstChildWithName(qname);
     }
 
     protected <T extends Text> void setTextElement(QName qname, T text, boolean many) {
@@ -462,6 +702,7 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
     }
 
     public void setText(String text) {
+        checkModifiable();
         complete();
         if (text != null) {
             OMNode child = this.getFirstOMChild();
@@ -472,6 +713,7 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
                 child = child.getNextOMSibling();
             }
             getOMFactory().createOMText(this, text);
+            childrenChanged();
         } else
             _removeAllChildren();
         // return (T)this;
@@ -552,18 +794,20 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
                 element.discard();
             }
         } else {
-            OMElement element = getFirstChildWithName(qname);
+            OMElement element = _getFirstChildWithName(qname);
             if (element != null)
                 element.discard();
         }
     }
 
     protected void _removeAllChildren() {
+        checkModifiable();
         complete();
         for (Iterator i = getChildren(); i.hasNext();) {
             OMNode node = (OMNode)i.next();
             node.discard();
         }
+        childrenChanged();
     }
 
     public Object clone() {
@@ -577,7 +821,6 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
         OMFactory factory = getOMFactory();
         for (Iterator i = src.getAllAttributes(); i.hasNext();) {
             OMAttribute attr = (OMAttribute)i.next();
-            dest.addAttribute(attr);
             dest.addAttribute(factory.createOMAttribute(attr.getLocalName(), attr.getNamespace(), attr
                 .getAttributeValue()));
         }
@@ -585,10 +828,11 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
             OMNode node = (OMNode)i.next();
             if (node.getType() == OMNode.ELEMENT_NODE) {
                 OMElement element = (OMElement)node;
-                OMElement child = _create(element);
+                OMElement child = _create(element, dest);
                 if (child != null) {
+                    if (child.getParent() != dest)
+                        dest.addChild(child);
                     _copyElement(element, child);
-                    dest.addChild(child);
                 }
             } else if (node.getType() == OMNode.CDATA_SECTION_NODE) {
                 OMText text = (OMText)node;
@@ -614,6 +858,14 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
     }
 
     protected OMElement _create(OMElement src) {
+        return _create(src, (OMContainer)((FOMFactory)getOMFactory()).newDocument());
+    }
+
+    /**
+     * Create an empty copy of the given element as a child of the given parent. Creating copied descendants directly
+     * beneath their new parent avoids allocating (and then discarding) a temporary document for each of them.
+     */
+    protected OMElement _create(OMElement src, OMContainer parent) {
         OMElement el = null;
 
         FOMFactory fomfactory = (FOMFactory)getOMFactory();
@@ -622,7 +874,7 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
             obj = ((Content)src).getContentType();
         if (src instanceof Text)
             obj = ((Text)src).getTextType();
-        el = fomfactory.createElement(src.getQName(), (OMContainer)fomfactory.newDocument(), fomfactory, obj);
+        el = fomfactory.createElement(src.getQName(), parent, fomfactory, obj);
 
         return el;
     }
@@ -650,6 +902,7 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
     // }
 
     public <T extends Base> T addComment(String value) {
+        checkModifiable();
         getOMFactory().createOMComment(this, value);
         return (T)this;
     }
@@ -690,6 +943,7 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
     }
 
     public <T extends Element> T declareNS(String uri, String prefix) {
+        checkModifiable();
         if (!isDeclared(uri, prefix)) {
             super.declareNamespace(uri, prefix);
         }
@@ -763,6 +1017,140 @@ public class FOMElement extends OMElementImpl implements Element, OMElement, Con
         return (T)this;
     }
 
+    /**
+     * Throws a FOMReadOnlyException if the node belongs to a frozen Document. Otherwise the node is about to be
+     * modified, so the cached serialized forms of the node and its enclosing entries are discarded. Nodes that are
+     * still being built are skipped without looking at their ancestors: freeze() builds the whole document, so such a
+     * node cannot belong to a frozen document, and neither it nor any of its ancestors can have been serialized.
+     */
+    static void checkModifiable(OMNode node) {
+        if (node instanceof OMContainer ? !((OMContainer)node).isComplete() : !isParentComplete(node))
+            return;
+        if (node instanceof FOMEntry)
+            ((FOMEntry)node).discardSerialized();
+        OMContainer parent = node.getParent();
+        while (parent instanceof OMNode) {
+            if (parent instanceof FOMEntry)
+                ((FOMEntry)parent).discardSerialized();
+            parent = ((OMNode)parent).getParent();
+        }
+        if (parent instanceof Document && ((Document)parent).isFrozen())
+            throw new FOMReadOnlyException();
+    }
+
+    private static boolean isParentComplete(OMNode node) {
+        OMContainer parent = node.getParent();
+        return parent == null || parent.isComplete();
+    }
+
+    protected void checkModifiable() {
+        checkModifiable(this);
+    }
+
+    @Override
+    public void addChild(OMNode node) {
+        checkModifiable();
+        OMContainer parent = node.getParent();
+        super.addChild(node);
+        childRemoved(parent, node);
+        childAdded(node);
+    }
+
+    @Override
+    public void addChild(OMNode node, boolean fromBuilder) {
+        if (!fromBuilder)
+            checkModifiable();
+        OMContainer parent = node.getParent();
+        super.addChild(node, fromBuilder);
+        childRemoved(parent, node);
+        childAdded(node);
+    }
+
+    @Override
+    public void removeChildren() {
+        checkModifiable();
+        childrenChanged();
+        super.removeChildren();
+    }
+
+    @Override
+    public OMNode detach() {
+        checkModifiable();
+        OMContainer parent = getParent();
+        OMNode node = super.detach();
+        childRemoved(parent, this);
+        return node;
+    }
+
+    @Override
+    public void discard() {
+        checkModifiable();
+        OMContainer parent = getParent();
+        super.discard();
+        childRemoved(parent, this);
+    }
+
+    @Override
+    public OMAttribute addAttribute(OMAttribute attr) {
+        checkModifiable();
+        attributesChanged();
+        return super.addAttribute(attr);
+    }
+
+    @Override
+    public OMAttribute addAttribute(String localName, String value, OMNamespace ns) {
+        checkModifiable();
+        attributesChanged();
+        return super.addAttribute(localName, value, ns);
+    }
+
+    @Override
+    public void removeAttribute(OMAttribute attr) {
+        checkModifiable();
+        attributesChanged();
+        super.removeAttribute(attr);
+    }
+
+    @Override
+    public OMNamespace declareNamespace(String uri, String prefix) {
+        checkModifiable();
+        return super.declareNamespace(uri, prefix);
+    }
+
+    @Override
+    public OMNamespace declareNamespace(OMNamespace namespace) {
+        checkModifiable();
+        return super.declareNamespace(namespace);
+    }
+
+    @Override
+    public OMNamespace declareDefaultNamespace(String uri) {
+        checkModifiable();
+        return super.declareDefaultNamespace(uri);
+    }
+
+    @Override
+    public void undeclarePrefix(String prefix) {
+        checkModifiable();
+        super.undeclarePrefix(prefix);
+    }
+
+    @Override
+    public void setNamespace(OMNamespace namespace) {
+        checkModifiable();
+        childRemoved(getParent(), this);
+        super.setNamespace(namespace);
+        childAdded(getParent(), this);
+    }
+
+    @Override
+    public void setLocalName(String localName) {
+        checkModifiable();
+        childRemoved(getParent(), this);
+        super.setLocalName(localName);
+        childAdded(getParent(), this);
+    }
+
     public WriterOptions getDefaultWriterOptions() {
         return new FOMWriter().getDefaultWriterOptions();
     }
@@ -20,8 +20,10 @@ package org.apache.abdera.parser.stax;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import javax.activation.DataHandler;
 import javax.activation.MimeType;
@@ -54,6 +56,7 @@ import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMException;
 import org.apache.axiom.om.OMFactory;
 import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.OMNode;
 import org.apache.axiom.om.OMXMLParserWrapper;
 
 @SuppressWarnings( {"unchecked", "deprecation"})
@@ -61,6 +64,10 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
 
     private static final long serialVersionUID = 1L;
 
+    private transient volatile Map<String, List<Link>> linkIndex;
+    private transient volatile boolean serializationCached;
+    private transient volatile SerializedForm serialized;
+
     public FOMEntry() {
         super(Constants.ENTRY, new FOMDocument<Entry>(), new FOMFactory());
     }
@@ -82,7 +89,7 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
     }
 
     public Person getAuthor() {
-        return (Person)getFirstChildWithName(AUTHOR);
+        return (Person)_getFirstChildWithName(AUTHOR);
     }
 
     public List<Person> getAuthors() {
@@ -157,7 +164,7 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
     }
 
     public Content getContentElement() {
-        return (Content)getFirstChildWithName(CONTENT);
+        return (Content)_getFirstChildWithName(CONTENT);
     }
 
     public Entry setContentElement(Content content) {
@@ -366,7 +373,7 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
     }
 
     public IRIElement getIdElement() {
-        return (IRIElement)getFirstChildWithName(ID);
+        return (IRIElement)_getFirstChildWithName(ID);
     }
 
     public Entry setIdElement(IRIElement id) {
@@ -417,11 +424,54 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
     }
 
     public List<Link> getLinks(String rel) {
-        return FOMHelper.getLinks(this, rel);
+        Map<String, List<Link>> index = linkIndex;
+        if (index == null) {
+            if (!isComplete())
+                return FOMHelper.getLinks(this, rel);
+            index = FOMHelper.getLinkIndex(this);
+            linkIndex = index;
+        }
+        List<Link> links = FOMHelper.getLinks(this, index, rel);
+        if (links == null) {
+            linkIndex = null;
+            links = FOMHelper.getLinks(this, rel);
+        }
+        return links;
     }
 
     public List<Link> getLinks(String... rels) {
-        return FOMHelper.getLinks(this, rels);
+        List<Link> links = new ArrayList<Link>();
+        for (String rel : rels)
+            links.addAll(getLinks(rel));
+        return links;
+    }
+
+    @Override
+    protected void childrenChanged() {
+        super.childrenChanged();
+        linkIndex = null;
+    }
+
+    @Override
+    protected void childAdded(OMNode node) {
+        super.childAdded(node);
+        if (node instanceof OMElement && ID.equals(((OMElement)node).getQName()))
+            idChanged();
+    }
+
+    @Override
+    protected void childRemoved(OMNode node) {
+        super.childRemoved(node);
+        if (node instanceof OMElement && ID.equals(((OMElement)node).getQName()))
+            idChanged();
+    }
+
+    /**
+     * Called when the value of the atom:id of this entry changes
+     */
+    void idChanged() {
+        if (getParent() instanceof FOMFeed)
+            ((FOMFeed)getParent()).entryIdChanged(this);
     }
 
     public Entry addLink(Link link) {
@@ -459,7 +509,7 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
     }
 
     public DateTime getPublishedElement() {
-        return (DateTime)getFirstChildWithName(PUBLISHED);
+        return (DateTime)_getFirstChildWithName(PUBLISHED);
     }
 
     public Entry setPublishedElement(DateTime dateTime) {
@@ -550,7 +600,7 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
     }
 
     public Source getSource() {
-        return (Source)getFirstChildWithName(SOURCE);
+        return (Source)_getFirstChildWithName(SOURCE);
     }
 
     public Entry setSource(Source source) {
@@ -660,7 +710,7 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
     }
 
     public DateTime getUpdatedElement() {
-        return (DateTime)getFirstChildWithName(UPDATED);
+        return (DateTime)_getFirstChildWithName(UPDATED);
     }
 
     public Entry setUpdatedElement(DateTime updated) {
@@ -704,9 +754,9 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
     }
 
     public DateTime getEditedElement() {
-        DateTime dt = (DateTime)getFirstChildWithName(EDITED);
+        DateTime dt = (DateTime)_getFirstChildWithName(EDITED);
         if (dt == null)
-            dt = (DateTime)getFirstChildWithName(PRE_RFC_EDITED);
+            dt = (DateTime)_getFirstChildWithName(PRE_RFC_EDITED);
         return dt;
     }
 
@@ -763,9 +813,9 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
     }
 
     public Control getControl() {
-        Control control = (Control)getFirstChildWithName(CONTROL);
+        Control control = (Control)_getFirstChildWithName(CONTROL);
         if (control == null)
-            control = (Control)getFirstChildWithName(PRE_RFC_CONTROL);
+            control = (Control)_getFirstChildWithName(PRE_RFC_CONTROL);
         return control;
     }
 
@@ -923,4 +973,50 @@ public class FOMEntry extends FOMExtensibleElement implements Entry {
         }
         return control;
     }
+
+    public Entry setSerializationCached(boolean cached) {
+        serializationCached = cached;
+        if (!cached)
+            serialized = null;
+        return this;
+    }
+
+    public boolean isSerializationCached() {
+        return serializationCached;
+    }
+
+    /**
+     * Returns the cached serialized form of this entry if it was written with the given key (which identifies the
+     * charset and namespace context) and has not been modified since, or null
+     */
+    public byte[] getSerialized(String key) {
+        SerializedForm form = serialized;
+        return form != null && form.key.equals(key) ? form.bytes : null;
+    }
+
+    /**
+     * Caches the serialized form of this entry for the given key. Ignored unless serialization caching is enabled
+     */
+    public void setSerialized(String key, byte[] bytes) {
+        if (serializationCached)
+            serialized = new SerializedForm(key, bytes);
+    }
+
+    /**
+     * Discard the cached serialized form of this entry. Called whenever the entry or one of its descendants is
+     * modified through the FOM API; changes made through Axiom methods that FOM does not override go unnoticed
+     */
+    void discardSerialized() {
+        serialized = null;
+    }
+
+    private static final class SerializedForm {
+        private final String key;
+        private final byte[] bytes;
+
+        SerializedForm(String key, byte[] bytes) {
+            this.key = key;
+            this.bytes = bytes;
+        }
+    }
 }
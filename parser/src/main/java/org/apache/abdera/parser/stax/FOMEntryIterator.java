@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.parser.stax;
+
+import java.util.NoSuchElementException;
+
+import org.apache.abdera.model.Element;
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.model.Feed;
+import org.apache.abdera.parser.EntryIterator;
+import org.apache.axiom.om.OMDocument;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMNode;
+import org.apache.axiom.om.OMXMLParserWrapper;
+
+/**
+ * EntryIterator implementation that walks the children of a partially built Feed, pulling each entry from the
+ * underlying parser only when it is requested. Once the iterator moves past an entry, that entry (and any text nodes
+ * that precede the next entry) is detached from the feed so that it can be garbage collected.
+ */
+public class FOMEntryIterator implements EntryIterator {
+
+    private final FOMFactory factory;
+    private final OMElement root;
+    private final OMXMLParserWrapper builder;
+    private OMNode current = null;
+    private OMNode next = null;
+    private boolean started = false;
+    private boolean closed = false;
+    private boolean release = false;
+
+    public FOMEntryIterator(OMDocument document) {
+        this.factory = (FOMFactory)document.getOMFactory();
+        this.root = document.getOMDocumentElement();
+        this.builder = root != null ? root.getBuilder() : null;
+    }
+
+    public Feed getFeed() {
+        return root instanceof Feed ? (Feed)factory.getElementWrapper((Element)root) : null;
+    }
+
+    public boolean hasNext() {
+        if (next == null && !closed)
+            advance();
+        return next != null;
+    }
+
+    public Entry next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        current = next;
+        next = null;
+        ((OMElement)current).build();
+        return (Entry)factory.getElementWrapper((Element)current);
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        current = null;
+        next = null;
+        if (builder != null)
+            builder.close();
+    }
+
+    private void advance() {
+        if (root instanceof Entry) {
+            if (!started)
+                next = root;
+            started = true;
+            return;
+        }
+        if (!(root instanceof Feed))
+            return;
+        OMNode node;
+        if (!started) {
+            started = true;
+            node = root.getFirstOMChild();
+        } else if (current != null) {
+            node = current.getNextOMSibling();
+            current.detach();
+            current = null;
+            release = true;
+        } else {
+            return;
+        }
+        while (node != null && !(node instanceof Entry)) {
+            OMNode sibling = node.getNextOMSibling();
+            if (release && node.getType() != OMNode.ELEMENT_NODE)
+                node.detach();
+            node = sibling;
+        }
+        next = node;
+    }
+}
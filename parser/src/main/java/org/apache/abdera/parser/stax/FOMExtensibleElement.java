@@ -68,7 +68,7 @@ public class FOMExtensibleElement extends FOMElement implements ExtensibleElemen
 
     public <T extends Element> T getExtension(QName qname) {
         FOMFactory factory = (FOMFactory)getFactory();
-        T t = (T)this.getFirstChildWithName(qname);
+        T t = (T)this._getFirstChildWithName(qname);
         return (T)((t != null) ? factory.getElementWrapper(t) : null);
     }
 
@@ -167,19 +167,19 @@ public class FOMExtensibleElement extends FOMElement implements ExtensibleElemen
         if (before == null) {
             addExtension(extension);
         } else {
-            ((OMElement)before).insertSiblingBefore((OMElement)extension);
+            insertSiblingBefore((OMElement)before, (OMElement)extension);
         }
         return (T)this;
     }
 
     public <T extends Element> T addExtension(QName qname, QName before) {
         complete();
-        OMElement el = getFirstChildWithName(before);
+        OMElement el = _getFirstChildWithName(before);
         T element = (T)getFactory().newElement(qname);
         if (el == null) {
             addExtension(element);
         } else {
-            el.insertSiblingBefore((OMElement)getInternal(element));
+            insertSiblingBefore(el, (OMElement)getInternal(element));
         }
         return (T)element;
     }
@@ -19,13 +19,17 @@ package org.apache.abdera.parser.stax;
 
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.namespace.QName;
 
 import org.apache.abdera.i18n.iri.IRI;
+import org.apache.abdera.model.AtomDate;
+import org.apache.abdera.model.DateTime;
 import org.apache.abdera.model.Entry;
 import org.apache.abdera.model.Feed;
 import org.apache.abdera.model.Source;
@@ -42,6 +46,8 @@ public class FOMFeed extends FOMSource implements Feed {
 
     private static final long serialVersionUID = 4552921210185524535L;
 
+    private transient volatile EntryIndex entryIndex;
+
     public FOMFeed() {
         super(Constants.FEED, new FOMDocument<Feed>(), new FOMFactory());
     }
@@ -80,15 +86,45 @@ public class FOMFeed extends FOMSource implements Feed {
 
     public Feed insertEntry(Entry entry) {
         complete();
-        OMElement el = getFirstChildWithName(ENTRY);
+        OMElement el = _getFirstChildWithName(ENTRY);
         if (el == null) {
             addEntry(entry);
         } else {
-            el.insertSiblingBefore((OMElement)entry);
+            insertSiblingBefore(el, (OMElement)entry);
+        }
+        return this;
+    }
+
+    public Feed addEntries(Iterable<Entry> entries) {
+        complete();
+        checkModifiable();
+        for (Entry entry : entries)
+            super.addChild((OMElement)entry);
+        return this;
+    }
+
+    public Feed insertEntries(Iterable<Entry> entries) {
+        complete();
+        checkModifiable();
+        OMElement el = _getFirstChildWithName(ENTRY);
+        for (Entry entry : entries) {
+            if (el == null)
+                super.addChild((OMElement)entry);
+            else if (entry != el)
+                insertSiblingBefore(el, (OMElement)entry);
+            else
+                el = nextEntry(el);
         }
         return this;
     }
 
+    private static OMElement nextEntry(OMElement el) {
+        OMNode node = el.getNextOMSibling();
+        while (node != null && !(node instanceof Entry))
+            node = node.getNextOMSibling();
+        return (OMElement)node;
+    }
+
     public Entry insertEntry() {
         complete();
         FOMFactory fomfactory = (FOMFactory)getOMFactory();
@@ -116,10 +152,11 @@ public class FOMFeed extends FOMSource implements Feed {
 
     @Override
     public void addChild(OMNode node) {
+        checkModifiable();
         if (isComplete() && node instanceof OMElement && !(node instanceof Entry)) {
-            OMElement el = this.getFirstChildWithName(ENTRY);
+            OMElement el = this._getFirstChildWithName(ENTRY);
             if (el != null) {
-                el.insertSiblingBefore(node);
+                insertSiblingBefore(el, node);
                 return;
             }
         }
@@ -128,13 +165,13 @@ public class FOMFeed extends FOMSource implements Feed {
 
     public Feed sortEntriesByUpdated(boolean new_first) {
         complete();
-        sortEntries(new UpdatedComparator(new_first));
+        sortEntriesByDate(false, new_first);
         return this;
     }
 
     public Feed sortEntriesByEdited(boolean new_first) {
         complete();
-        sortEntries(new EditedComparator(new_first));
+        sortEntriesByDate(true, new_first);
         return this;
     }
 
@@ -145,70 +182,210 @@ public class FOMFeed extends FOMSource implements Feed {
         List<Entry> entries = this.getEntries();
         Entry[] a = entries.toArray(new Entry[entries.size()]);
         Arrays.sort(a, comparator);
-        for (Entry e : entries) {
-            e.discard();
-        }
-        for (Entry e : a) {
-            addEntry(e);
-        }
+        reorderEntries(a);
         return this;
     }
 
-    private static class EditedComparator implements Comparator<Entry> {
-        private boolean new_first = true;
-
-        EditedComparator(boolean new_first) {
-            this.new_first = new_first;
+    /**
+     * Sort the entries by atom:updated, or by app:edited falling back to atom:updated. The dates are parsed once per
+     * entry rather than once per comparison. Entries without a date come first. The sort is stable.
+     */
+    private void sortEntriesByDate(boolean edited, boolean new_first) {
+        List<Entry> entries = this.getEntries();
+        int n = entries.size();
+        Entry[] a = entries.toArray(new Entry[n]);
+        long[] keys = new long[n];
+        boolean[] dated = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            AtomDate date = edited ? getDateValue(a[i].getEditedElement()) : null;
+            if (date == null)
+                date = getDateValue(a[i].getUpdatedElement());
+            if (date != null) {
+                keys[i] = new_first ? -date.getTime() : date.getTime();
+                dated[i] = true;
+            }
         }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        mergeSort(order, new int[n], 0, n, keys, dated);
+        Entry[] sorted = new Entry[n];
+        for (int i = 0; i < n; i++)
+            sorted[i] = a[order[i]];
+        reorderEntries(sorted);
+    }
 
-        public int compare(Entry o1, Entry o2) {
-            Date d1 = o1.getEdited();
-            Date d2 = o2.getEdited();
-            if (d1 == null)
-                d1 = o1.getUpdated();
-            if (d2 == null)
-                d2 = o2.getUpdated();
-            if (d1 == null && d2 == null)
-                return 0;
-            if (d1 == null && d2 != null)
-                return -1;
-            if (d1 != null && d2 == null)
-                return 1;
-            int r = d1.compareTo(d2);
-            return (new_first) ? -r : r;
-        }
-    };
+    private static AtomDate getDateValue(DateTime dte) {
+        return (dte != null) ? dte.getValue() : null;
+    }
 
-    private static class UpdatedComparator implements Comparator<Entry> {
-        private boolean new_first = true;
+    private static void mergeSort(int[] order, int[] tmp, int from, int to, long[] keys, boolean[] dated) {
+        if (to - from < 2)
+            return;
+        int mid = (from + to) >>> 1;
+        mergeSort(order, tmp, from, mid, keys, dated);
+        mergeSort(order, tmp, mid, to, keys, dated);
+        if (compareKeys(order[mid - 1], order[mid], keys, dated) <= 0)
+            return;
+        System.arraycopy(order, from, tmp, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to)
+            order[k++] = compareKeys(tmp[j], tmp[i], keys, dated) < 0 ? tmp[j++] : tmp[i++];
+        while (i < mid)
+            order[k++] = tmp[i++];
+        while (j < to)
+            order[k++] = tmp[j++];
+    }
 
-        UpdatedComparator(boolean new_first) {
-            this.new_first = new_first;
-        }
+    private static int compareKeys(int a, int b, long[] keys, boolean[] dated) {
+        if (dated[a] != dated[b])
+            return dated[a] ? 1 : -1;
+        return keys[a] < keys[b] ? -1 : keys[a] > keys[b] ? 1 : 0;
+    }
 
-        public int compare(Entry o1, Entry o2) {
-            Date d1 = o1.getUpdated();
-            Date d2 = o2.getUpdated();
-            if (d1 == null && d2 == null)
-                return 0;
-            if (d1 == null && d2 != null)
-                return -1;
-            if (d1 != null && d2 == null)
-                return 1;
-            int r = d1.compareTo(d2);
-            return (new_first) ? -r : r;
+    /**
+     * Move the entries into the given order. The sorted entries take the positions previously occupied by entries, so
+     * any other children of the feed stay where they are. Each entry is unlinked and relinked once.
+     */
+    private void reorderEntries(Entry[] sorted) {
+        checkModifiable();
+        int n = sorted.length;
+        OMNode[] anchors = new OMNode[n];
+        int slots = 0, anchored = 0;
+        for (OMNode node = getFirstOMChild(); node != null; node = node.getNextOMSibling()) {
+            if (node instanceof Entry) {
+                if (slots < n)
+                    slots++;
+            } else {
+                while (anchored < slots)
+                    anchors[anchored++] = node;
+            }
         }
-    };
+        for (Entry entry : sorted)
+            ((OMNode)entry).detach();
+        for (int i = 0; i < n; i++) {
+            if (anchors[i] != null)
+                insertSiblingBefore(anchors[i], (OMNode)sorted[i]);
+            else
+                super.addChild((OMNode)sorted[i]);
+        }
+    }
 
     public Entry getEntry(String id) {
         if (id == null)
             return null;
-        List<Entry> l = getEntries();
-        for (Entry e : l) {
+        IRI iri = new IRI(id);
+        EntryIndex index = entryIndex;
+        if (index == null) {
+            if (!isComplete())
+                return findEntry(iri);
+            index = new EntryIndex(getEntries());
+            entryIndex = index;
+        }
+        Entry entry = index.byId.get(iri.toString());
+        if (entry == null || isEntry((OMNode)entry) && ((OMNode)entry).getParent() == this)
+            return entry;
+        entryIndex = null;
+        return findEntry(iri);
+    }
+
+    private Entry findEntry(IRI iri) {
+        for (Entry e : getEntries()) {
             IRI eid = e.getId();
-            if (eid != null && eid.equals(new IRI(id)))
+            if (eid != null && eid.equals(iri))
                 return e;
         }
         return null;
     }
+
+    /**
+     * Called when the atom:id of one of the entries of this feed changes
+     */
+    void entryIdChanged(Entry entry) {
+        EntryIndex index = entryIndex;
+        entryIndex = null;
+        if (index != null && index.remove(entry) && index.add(entry))
+            entryIndex = index;
+    }
+
+    @Override
+    protected void childrenChanged() {
+        super.childrenChanged();
+        entryIndex = null;
+    }
+
+    @Override
+    protected void childAdded(OMNode node) {
+        EntryIndex index = entryIndex;
+        super.childAdded(node);
+        if (index != null && (isEntry(node) ? index.add((Entry)node) : !(node instanceof Entry)))
+            entryIndex = index;
+    }
+
+    @Override
+    protected void childRemoved(OMNode node) {
+        EntryIndex index = entryIndex;
+        super.childRemoved(node);
+        if (index != null && (isEntry(node) ? index.remove((Entry)node) : !(node instanceof Entry)))
+            entryIndex = index;
+    }
+
+    private static boolean isEntry(OMNode node) {
+        return node instanceof Entry && ENTRY.equals(((OMElement)node).getQName());
+    }
+
+    /**
+     * Maps atom:id values to the first entry in document order that carries them. The ids are keyed by the string form
+     * of the parsed IRI, which is computed once per entry, so lookups compare strings without parsing the ids of the
+     * entries again. The index is updated in place as entries are added and removed and as their ids change; whenever
+     * that cannot be done cheaply (e.g. an entry is inserted with an id that is already in use) it is discarded and
+     * rebuilt on the next lookup. Only the FOM API keeps the index up to date, so getEntry checks each hit against the
+     * entry's current parent and name, and trusts misses.
+     */
+    private static final class EntryIndex {
+        final Map<String, Entry> byId = new HashMap<String, Entry>();
+        final Map<Entry, String> ids = new IdentityHashMap<Entry, String>();
+        boolean duplicates;
+
+        EntryIndex(List<Entry> entries) {
+            for (Entry entry : entries) {
+                String id = getKey(entry);
+                if (id == null)
+                    continue;
+                ids.put(entry, id);
+                if (byId.containsKey(id))
+                    duplicates = true;
+                else
+                    byId.put(id, entry);
+            }
+        }
+
+        boolean add(Entry entry) {
+            if (ids.containsKey(entry))
+                return false;
+            String id = getKey(entry);
+            if (id == null)
+                return true;
+            if (byId.containsKey(id))
+                return false;
+            ids.put(entry, id);
+            byId.put(id, entry);
+            return true;
+        }
+
+        boolean remove(Entry entry) {
+            String id = ids.remove(entry);
+            if (id == null)
+                return true;
+            if (duplicates)
+                return false;
+            byId.remove(id);
+            return true;
+        }
+
+        private static String getKey(Entry entry) {
+            IRI id = entry.getId();
+            return (id != null) ? id.toString() : null;
+        }
+    }
 }
@@ -44,6 +44,13 @@ public class FOMIRI extends FOMElement implements IRIElement {
         super(localName, parent, factory, builder);
     }
 
+    @Override
+    protected void childrenChanged() {
+        super.childrenChanged();
+        if (getParent() instanceof FOMEntry && ID.equals(getQName()))
+            ((FOMEntry)getParent()).idChanged();
+    }
+
     public IRI getValue() {
         return _getUriValue(getText());
     }
@@ -17,8 +17,27 @@
  */
 package org.apache.abdera.parser.stax;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
@@ -28,21 +47,49 @@ import org.apache.abdera.Abdera;
 import org.apache.abdera.factory.Factory;
 import org.apache.abdera.i18n.iri.IRI;
 import org.apache.abdera.i18n.text.Localizer;
+import org.apache.abdera.i18n.text.io.ByteBufferInputStream;
 import org.apache.abdera.i18n.text.io.CompressionUtil;
+import org.apache.abdera.i18n.text.io.CompressionUtil.CompressionCodec;
 import org.apache.abdera.model.Document;
 import org.apache.abdera.model.Element;
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.model.Feed;
+import org.apache.abdera.parser.AsyncParse;
+import org.apache.abdera.parser.AsyncParseListener;
+import org.apache.abdera.parser.EntryIterator;
 import org.apache.abdera.parser.ParseException;
 import org.apache.abdera.parser.Parser;
 import org.apache.abdera.parser.ParserOptions;
+import org.apache.abdera.parser.stax.util.FOMFeedSplitter;
 import org.apache.abdera.parser.stax.util.FOMSniffingInputStream;
+import org.apache.abdera.parser.stax.util.FOMXmlRestrictedCharInputStream;
 import org.apache.abdera.parser.stax.util.FOMXmlRestrictedCharReader;
 import org.apache.abdera.util.AbstractParser;
+import org.apache.abdera.util.XmlUtil;
 import org.apache.axiom.om.OMDocument;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMNode;
 import org.apache.axiom.om.util.StAXParserConfiguration;
 import org.apache.axiom.om.util.StAXUtils;
 import org.apache.axiom.util.stax.dialect.StAXDialect;
 
 public class FOMParser extends AbstractParser implements Parser {
+    private static final int MIN_CHUNK_SIZE = 16 * 1024;
+
+    /** Holds the pool used by parseParallel when no executor is given, which is created when first requested **/
+    private static final class ExecutorHolder {
+        static final ExecutorService executor =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "abdera-parser-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    }
+
     private static final StAXParserConfiguration ABDERA_PARSER_CONFIGURATION = new StAXParserConfiguration() {
         public XMLInputFactory configure(XMLInputFactory factory, StAXDialect dialect) {
             factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.FALSE);
@@ -97,8 +144,7 @@ public class FOMParser extends AbstractParser implements Parser {
         if (in == null)
             throw new IllegalArgumentException(Localizer.get("INPUTSTREAM.NOT.NULL"));
         try {
-            if (options == null)
-                options = getDefaultParserOptions();
+            options = snapshot(options);
             if (options.getCompressionCodecs() != null) {
                 in = CompressionUtil.getDecodingInputStream(in, options.getCompressionCodecs());
             }
@@ -112,17 +158,36 @@ public class FOMParser extends AbstractParser implements Parser {
                     options.setCharset(charset);
                 in = sin;
             }
-            if (options.getFilterRestrictedCharacters()) {
-                Reader rdr =
-                    (charset == null)
-                        ? new FOMXmlRestrictedCharReader(in, options.getFilterRestrictedCharacterReplacement())
-                        : new FOMXmlRestrictedCharReader(in, charset, options.getFilterRestrictedCharacterReplacement());
-                return parse(StAXUtils.createXMLStreamReader(rdr), base, options);
-            } else {
-                XMLStreamReader xmlreader =
-                    (charset == null) ? createXMLStreamReader(in) : createXMLStreamReader(in, charset);
-                return parse(xmlreader, base, options);
+            return build(in, charset, base, options);
+        } catch (Exception e) {
+            if (!(e instanceof ParseException))
+                e = new ParseException(e);
+            throw (ParseException)e;
+        }
+    }
+
+    /**
+     * Parses the buffer in place. Only the head of the buffer is copied to detect the character encoding; the StAX
+     * parser then reads the buffer directly rather than through a stack of filtering streams.
+     */
+    @Override
+    public <T extends Element> Document<T> parse(ByteBuffer buf, String base, ParserOptions options)
+        throws ParseException {
+        if (buf == null)
+            throw new IllegalArgumentException(Localizer.get("INPUTSTREAM.NOT.NULL"));
+        try {
+            options = snapshot(options);
+            if (options.getCompressionCodecs() != null)
+                return parse(new ByteBufferInputStream(buf), base, options);
+            String charset = options.getCharset();
+            if (charset == null && options.getAutodetectCharset()) {
+                charset = new FOMSniffingInputStream(new ByteBufferInputStream(buf)).getEncoding();
+                // Nothing was found, so fall back to the XML default
+                if (charset == null)
+                    charset = "UTF-8";
+                options.setCharset(charset);
             }
+            return build(new ByteBufferInputStream(buf), charset, base, options);
         } catch (Exception e) {
             if (!(e instanceof ParseException))
                 e = new ParseException(e);
@@ -130,17 +195,57 @@ public class FOMParser extends AbstractParser implements Parser {
         }
     }
 
+    /**
+     * File channels are read or mapped into a ByteBuffer, other channels are read as a stream. Unlike the default
+     * implementation, the character encoding is detected from the document rather than assumed to be UTF-8.
+     */
+    @Override
+    public <T extends Element> Document<T> parse(ReadableByteChannel buf, String base, ParserOptions options)
+        throws ParseException {
+        if (buf instanceof FileChannel) {
+            try {
+                return parse(read((FileChannel)buf), base, options);
+            } catch (IOException e) {
+                throw new ParseException(e);
+            }
+        }
+        return parse(Channels.newInputStream(buf), base, options);
+    }
+
+    private <T extends Element> Document<T> build(InputStream in, String charset, String base, ParserOptions options)
+        throws Exception {
+        // A stream that has been sniffed without finding an encoding is UTF-8
+        String filterCharset = charset == null && in instanceof FOMSniffingInputStream ? "UTF-8" : charset;
+        if (options.getFilterRestrictedCharacters() && FOMXmlRestrictedCharInputStream.isSupported(filterCharset)) {
+            in =
+                new FOMXmlRestrictedCharInputStream(in, filterCharset, options
+                    .getFilterRestrictedCharacterReplacement());
+            XMLStreamReader xmlreader =
+                (charset == null) ? createXMLStreamReader(in) : createXMLStreamReader(in, charset);
+            return build(xmlreader, in, base, options);
+        } else if (options.getFilterRestrictedCharacters()) {
+            Reader rdr =
+                (charset == null)
+                    ? new FOMXmlRestrictedCharReader(in, options.getFilterRestrictedCharacterReplacement())
+                    : new FOMXmlRestrictedCharReader(in, charset, options.getFilterRestrictedCharacterReplacement());
+            return build(StAXUtils.createXMLStreamReader(rdr), rdr, base, options);
+        } else {
+            XMLStreamReader xmlreader =
+                (charset == null) ? createXMLStreamReader(in) : createXMLStreamReader(in, charset);
+            return build(xmlreader, in, base, options);
+        }
+    }
+
     public <T extends Element> Document<T> parse(Reader in, String base, ParserOptions options) throws ParseException {
         if (in == null)
             throw new IllegalArgumentException(Localizer.get("READER.NOT.NULL"));
         try {
-            if (options == null)
-                options = getDefaultParserOptions();
+            options = snapshot(options);
             if (options.getFilterRestrictedCharacters() && !(in instanceof FOMXmlRestrictedCharReader)) {
                 in = new FOMXmlRestrictedCharReader(in, options.getFilterRestrictedCharacterReplacement());
             }
             // return parse(StAXUtils.createXMLStreamReader(in), base, options);
-            return parse(createXMLStreamReader(in), base, options);
+            return build(createXMLStreamReader(in), in, base, options);
         } catch (Exception e) {
             if (!(e instanceof ParseException))
                 e = new ParseException(e);
@@ -162,8 +267,35 @@ public class FOMParser extends AbstractParser implements Parser {
 
     public <T extends Element> Document<T> parse(XMLStreamReader reader, String base, ParserOptions options)
         throws ParseException {
+        return build(reader, base, snapshot(options));
+    }
+
+    /**
+     * Documents are built lazily, so the builder may consult the options long after parse() has returned. The parser
+     * therefore works on a private copy of the options it is given; values detected while parsing (such as the
+     * charset) are recorded on that copy and never leak back into the caller's options or the parser defaults.
+     */
+    private ParserOptions snapshot(ParserOptions options) {
+        if (options == null)
+            return getDefaultParserOptions();
         try {
-            FOMBuilder builder = new FOMBuilder(getFomFactory(options), reader, options);
+            return (ParserOptions)options.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new ParseException(e);
+        }
+    }
+
+    private <T extends Element> Document<T> build(XMLStreamReader reader, String base, ParserOptions options)
+        throws ParseException {
+        return build(reader, null, base, options);
+    }
+
+    private <T extends Element> Document<T> build(XMLStreamReader reader,
+                                                  Closeable source,
+                                                  String base,
+                                                  ParserOptions options) throws ParseException {
+        try {
+            FOMBuilder builder = new FOMBuilder(getFomFactory(options), reader, options, source);
             return getDocument(builder, base != null ? new IRI(base) : null, options);
         } catch (Exception e) {
             if (!(e instanceof ParseException))
@@ -172,6 +304,169 @@ public class FOMParser extends AbstractParser implements Parser {
         }
     }
 
+    /**
+     * Parses the stream lazily. The returned iterator pulls each entry from the underlying XMLStreamReader as it is
+     * requested and detaches it from the feed once the iterator moves on, so memory use is bounded by the size of the
+     * largest entry rather than the size of the feed.
+     */
+    @Override
+    public EntryIterator parseEntries(InputStream in, String base, ParserOptions options) throws ParseException {
+        Document<Element> document = parse(in, base, options);
+        return new FOMEntryIterator((OMDocument)document);
+    }
+
+    /**
+     * Reads the whole document and, if it is a feed in an ASCII compatible encoding, splits it at its top-level entries
+     * using FOMFeedSplitter. Runs of entries are parsed as separate documents on the executor while the remainder of
+     * the feed is parsed on the calling thread; each parsed entry then replaces its placeholder in the feed. Anything
+     * that cannot be split is parsed normally from the buffered bytes.
+     */
+    @Override
+    public <T extends Element> Document<T> parseParallel(InputStream in,
+                                                         String base,
+                                                         ParserOptions options,
+                                                         ExecutorService executor) throws ParseException {
+        if (in == null)
+            throw new IllegalArgumentException(Localizer.get("INPUTSTREAM.NOT.NULL"));
+        try {
+            options = snapshot(options);
+            if (options.getCompressionCodecs() != null) {
+                in = CompressionUtil.getDecodingInputStream(in, options.getCompressionCodecs());
+                options.setCompressionCodecs((CompressionCodec[])null);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            for (int r = in.read(buf); r != -1; r = in.read(buf))
+                out.write(buf, 0, r);
+            byte[] bytes = out.toByteArray();
+
+            FOMFeedSplitter splitter =
+                canSplit(bytes, bytes.length, options) ? FOMFeedSplitter.split(bytes, bytes.length) : null;
+            if (splitter == null || splitter.getEntryCount() == 0)
+                return parse(new ByteArrayInputStream(bytes), base, options);
+            return parseParallel(bytes, splitter, base, options, executor);
+        } catch (Exception e) {
+            if (!(e instanceof ParseException))
+                e = new ParseException(e);
+            throw (ParseException)e;
+        }
+    }
+
+    private <T extends Element> Document<T> parseParallel(byte[] bytes,
+                                                          FOMFeedSplitter splitter,
+                                                          final String base,
+                                                          final ParserOptions options,
+                                                          ExecutorService executor) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (executor == null)
+            executor = ExecutorHolder.executor;
+        // Aim for a few chunks per thread so that uneven entries still balance out
+        int chunkSize = Math.max(bytes.length / (threads * 4), MIN_CHUNK_SIZE);
+        List<Future<List<Entry>>> chunks = new ArrayList<Future<List<Entry>>>();
+        int count = splitter.getEntryCount();
+        for (int from = 0, to = 0; from < count; from = to) {
+            int size = 0;
+            while (to < count && (to == from || size < chunkSize))
+                size += splitter.getEntryLength(to++);
+            final byte[] fragment = splitter.getFragment(from, to);
+            chunks.add(executor.submit(new Callable<List<Entry>>() {
+                public List<Entry> call() throws Exception {
+                    List<Entry> entries = parseFragment(fragment, base, options);
+                    // detaching builds the entries, so that all of the parsing happens on this thread
+                    for (Entry entry : entries)
+                        ((OMNode)entry).detach();
+                    return entries;
+                }
+            }));
+        }
+
+        List<Entry> entries = new ArrayList<Entry>(count);
+        for (Future<List<Entry>> chunk : chunks)
+            entries.addAll(get(chunk));
+        Document<T> document = assemble(splitter.getSkeleton(), entries, base, options);
+        return document != null ? document : this.<T> parse(new ByteArrayInputStream(bytes), base, options);
+    }
+
+    /**
+     * Detects the character encoding of a document that is about to be split, recording it on the options, and
+     * returns true if FOMFeedSplitter can scan the document. The buffer must hold at least the head of the document.
+     */
+    boolean canSplit(byte[] buf, int len, ParserOptions options) throws IOException {
+        // the entry limit applies to the document as a whole, not to each fragment
+        if (options.getCompressionCodecs() != null || options.getMaxEntries() >= 0)
+            return false;
+        String charset = options.getCharset();
+        if (charset == null && options.getAutodetectCharset()) {
+            charset = new FOMSniffingInputStream(new ByteArrayInputStream(buf, 0, len)).getEncoding();
+            if (charset == null)
+                charset = "UTF-8";
+            options.setCharset(charset);
+        }
+        options.setAutodetectCharset(false);
+        String version =
+            XmlUtil.getDeclarationAttribute(new String(buf, 0, Math.min(len, 200), "ISO-8859-1"), "version");
+        return isAsciiCompatible(charset) && (version == null || version.equals("1.0"));
+    }
+
+    /**
+     * Parses a fragment produced by FOMFeedSplitter and returns its entries. The entries remain attached to the
+     * fragment's feed, so they see the same xml:base, xml:lang and namespaces as in the original document until they
+     * are moved into the assembled document.
+     */
+    List<Entry> parseFragment(byte[] fragment, String base, ParserOptions options) {
+        Document<Feed> doc = parse(new ByteArrayInputStream(fragment), base, options);
+        return new ArrayList<Entry>(doc.getRoot().getEntries());
+    }
+
+    /**
+     * Parses the skeleton produced by FOMFeedSplitter and replaces its placeholders with the given entries, in order.
+     * Returns null if the entries cannot be matched up with the placeholders, for instance because a parse filter
+     * dropped some of them.
+     */
+    <T extends Element> Document<T> assemble(byte[] skeleton, List<Entry> entries, String base, ParserOptions options) {
+        Document<T> document = parse(new ByteArrayInputStream(skeleton), base, options);
+        Feed feed = (Feed)document.getRoot();
+        ((OMElement)feed).build();
+        List<Entry> placeholders = new ArrayList<Entry>(feed.getEntries());
+        if (entries.size() != placeholders.size())
+            return null;
+        Iterator<Entry> i = entries.iterator();
+        for (Entry placeholder : placeholders) {
+            FOMElement.insertSiblingBefore((OMNode)placeholder, (OMNode)i.next());
+            ((OMNode)placeholder).detach();
+        }
+        return document;
+    }
+
+    /**
+     * Entries are parsed as soon as they have arrived completely and the document is then assembled from them. This
+     * works for feeds in ASCII compatible encodings; other documents are parsed once they have been completely written.
+     */
+    @Override
+    public <T extends Element> AsyncParse<T> parseAsync(String base,
+                                                        ParserOptions options,
+                                                        AsyncParseListener<T> listener) {
+        return new FOMAsyncParse<T>(this, base, snapshot(options), listener);
+    }
+
+    private static <V> V get(Future<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception)cause : e;
+        }
+    }
+
+    private static boolean isAsciiCompatible(String charset) {
+        try {
+            String name = Charset.forName(charset).name();
+            return name.equals("UTF-8") || name.equals("ISO-8859-1") || name.equals("US-ASCII");
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     @Override
     protected ParserOptions initDefaultParserOptions() {
         return new FOMParserOptions(getFactory());
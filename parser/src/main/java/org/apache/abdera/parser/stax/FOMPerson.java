@@ -48,7 +48,7 @@ public class FOMPerson extends FOMExtensibleElement implements Person {
     }
 
     public Element getNameElement() {
-        return (Element)getFirstChildWithName(NAME);
+        return (Element)_getFirstChildWithName(NAME);
     }
 
     public Person setNameElement(Element element) {
@@ -80,7 +80,7 @@ public class FOMPerson extends FOMExtensibleElement implements Person {
     }
 
     public Element getEmailElement() {
-        return (Element)getFirstChildWithName(EMAIL);
+        return (Element)_getFirstChildWithName(EMAIL);
     }
 
     public Person setEmailElement(Element element) {
@@ -112,7 +112,7 @@ public class FOMPerson extends FOMExtensibleElement implements Person {
     }
 
     public IRIElement getUriElement() {
-        return (IRIElement)getFirstChildWithName(URI);
+        return (IRIElement)_getFirstChildWithName(URI);
     }
 
     public Person setUriElement(IRIElement uri) {
@@ -54,6 +54,7 @@ public class FOMProcessingInstruction extends OMProcessingInstructionImpl implem
     }
 
     public <T extends ProcessingInstruction> T setText(String text) {
+        FOMElement.checkModifiable(this);
         setValue(text);
         return (T)this;
     }
@@ -68,6 +69,7 @@ public class FOMProcessingInstruction extends OMProcessingInstructionImpl implem
     }
 
     public void setTarget(String target) {
+        FOMElement.checkModifiable(this);
         super.setTarget(target);
     }
 
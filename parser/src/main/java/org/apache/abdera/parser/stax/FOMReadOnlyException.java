@@ -0,0 +1,33 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.parser.stax;
+
+import org.apache.abdera.i18n.text.Localizer;
+
+/**
+ * Thrown when an attempt is made to modify a frozen Document or one of its elements
+ */
+public class FOMReadOnlyException extends FOMException {
+
+    private static final long serialVersionUID = -2546213271658412317L;
+
+    public FOMReadOnlyException() {
+        super(Localizer.get("READ.ONLY.DOCUMENT"));
+    }
+
+}
@@ -17,9 +17,11 @@
  */
 package org.apache.abdera.parser.stax;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.namespace.QName;
 
@@ -53,6 +55,8 @@ public class FOMSource extends FOMExtensibleElement implements Source {
 
     private static final long serialVersionUID = 9153127297531238021L;
 
+    private transient volatile Map<String, List<Link>> linkIndex;
+
     protected FOMSource(String name, OMNamespace namespace, OMContainer parent, OMFactory factory) throws OMException {
         super(name, namespace, parent, factory);
     }
@@ -71,7 +75,7 @@ public class FOMSource extends FOMExtensibleElement implements Source {
     }
 
     public Person getAuthor() {
-        return (Person)getFirstChildWithName(AUTHOR);
+        return (Person)_getFirstChildWithName(AUTHOR);
     }
 
     public List<Person> getAuthors() {
@@ -174,7 +178,7 @@ public class FOMSource extends FOMExtensibleElement implements Source {
     }
 
     public IRIElement getIdElement() {
-        return (IRIElement)getFirstChildWithName(ID);
+        return (IRIElement)_getFirstChildWithName(ID);
     }
 
     public <T extends Source> T setIdElement(IRIElement id) {
@@ -226,11 +230,32 @@ public class FOMSource extends FOMExtensibleElement implements Source {
     }
 
     public List<Link> getLinks(String rel) {
-        return FOMHelper.getLinks(this, rel);
+        Map<String, List<Link>> index = linkIndex;
+        if (index == null) {
+            if (!isComplete())
+                return FOMHelper.getLinks(this, rel);
+            index = FOMHelper.getLinkIndex(this);
+            linkIndex = index;
+        }
+        List<Link> links = FOMHelper.getLinks(this, index, rel);
+        if (links == null) {
+            linkIndex = null;
+            links = FOMHelper.getLinks(this, rel);
+        }
+        return links;
     }
 
     public List<Link> getLinks(String... rels) {
-        return FOMHelper.getLinks(this, rels);
+        List<Link> links = new ArrayList<Link>();
+        for (String rel : rels)
+            links.addAll(getLinks(rel));
+        return links;
+    }
+
+    @Override
+    protected void childrenChanged() {
+        super.childrenChanged();
+        linkIndex = null;
     }
 
     public <T extends Source> T addLink(Link link) {
@@ -408,7 +433,7 @@ public class FOMSource extends FOMExtensibleElement implements Source {
     }
 
     public DateTime getUpdatedElement() {
-        return (DateTime)getFirstChildWithName(UPDATED);
+        return (DateTime)_getFirstChildWithName(UPDATED);
     }
 
     public <T extends Source> T setUpdatedElement(DateTime updated) {
@@ -457,7 +482,7 @@ public class FOMSource extends FOMExtensibleElement implements Source {
     }
 
     public Generator getGenerator() {
-        return (Generator)getFirstChildWithName(GENERATOR);
+        return (Generator)_getFirstChildWithName(GENERATOR);
     }
 
     public <T extends Source> T setGenerator(Generator generator) {
@@ -483,7 +508,7 @@ public class FOMSource extends FOMExtensibleElement implements Source {
     }
 
     public IRIElement getIconElement() {
-        return (IRIElement)getFirstChildWithName(ICON);
+        return (IRIElement)_getFirstChildWithName(ICON);
     }
 
     public <T extends Source> T setIconElement(IRIElement iri) {
@@ -514,7 +539,7 @@ public class FOMSource extends FOMExtensibleElement implements Source {
     }
 
     public IRIElement getLogoElement() {
-        return (IRIElement)getFirstChildWithName(LOGO);
+        return (IRIElement)_getFirstChildWithName(LOGO);
     }
 
     public <T extends Source> T setLogoElement(IRIElement iri) {
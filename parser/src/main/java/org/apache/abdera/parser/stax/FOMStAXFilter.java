@@ -17,6 +17,8 @@
  */
 package org.apache.abdera.parser.stax;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Map;
 
 import javax.xml.namespace.QName;
@@ -26,6 +28,8 @@ import javax.xml.stream.XMLStreamReader;
 import org.apache.abdera.filter.ParseFilter;
 import org.apache.abdera.parser.ParseException;
 import org.apache.abdera.parser.ParserOptions;
+import org.apache.abdera.util.Constants;
+import org.apache.abdera.util.filter.PathProjection;
 import org.apache.axiom.om.OMContainer;
 import org.apache.axiom.util.stax.wrapper.XMLStreamReaderWrapper;
 
@@ -53,11 +57,29 @@ class FOMStAXFilter extends XMLStreamReaderWrapper {
     private String altText;
     private int[] attributeMap;
     private int attributeCount;
-    
+    private PathProjection.State[] projectionStates;
+    private int projectionDepth;
+    private final Closeable source;
+    private int maxEntries = -1;
+    private int entryCount;
+    private int depth;
+    private QName rootName;
+    private boolean truncated;
+
     FOMStAXFilter(XMLStreamReader parent, ParserOptions parserOptions) {
+        this(parent, parserOptions, null);
+    }
+
+    /**
+     * @param source The stream the reader is reading from. It is closed if the parse stops early because the entry
+     *            limit has been reached.
+     */
+    FOMStAXFilter(XMLStreamReader parent, ParserOptions parserOptions, Closeable source) {
         super(parent);
         this.parserOptions = parserOptions;
+        this.source = source;
         if (parserOptions != null) {
+            maxEntries = parserOptions.getMaxEntries();
             ParseFilter parseFilter = parserOptions.getParseFilter();
             if (parseFilter != null) {
                 ignoreWhitespace = parseFilter.getIgnoreWhitespace();
@@ -65,6 +87,11 @@ class FOMStAXFilter extends XMLStreamReaderWrapper {
                 ignorePI = parseFilter.getIgnoreProcessingInstructions();
                 attributeMap = new int[8];
             }
+            PathProjection projection = parserOptions.getProjection();
+            if (projection != null) {
+                projectionStates = new PathProjection.State[16];
+                projectionStates[0] = projection.getInitialState();
+            }
         }
         resetEvent();
     }
@@ -85,6 +112,65 @@ class FOMStAXFilter extends XMLStreamReaderWrapper {
         }
     }
     
+    /**
+     * Advances the projection state machine for the current start tag. Returns false if the element is not on any of
+     * the projected paths and should be skipped.
+     */
+    private boolean project() {
+        PathProjection.State state = projectionStates[projectionDepth].next(this);
+        if (state == PathProjection.State.NONE)
+            return false;
+        if (++projectionDepth == projectionStates.length) {
+            PathProjection.State[] newStates = new PathProjection.State[projectionStates.length * 2];
+            System.arraycopy(projectionStates, 0, newStates, 0, projectionStates.length);
+            projectionStates = newStates;
+        }
+        projectionStates[projectionDepth] = state;
+        return true;
+    }
+
+    /**
+     * Returns true if the current start tag is a top-level entry beyond the entry limit
+     */
+    private boolean limitReached() {
+        if (depth == 0) {
+            rootName = getName();
+            return false;
+        }
+        if (depth != 1 || !Constants.FEED.equals(rootName) || !Constants.ENTRY.equals(getName()))
+            return false;
+        return entryCount++ == maxEntries;
+    }
+
+    /**
+     * Ends the document at the current position by reporting the end of the root element, followed by the end of the
+     * document on the next call to next(), and releases the underlying reader and stream.
+     */
+    private int truncate() throws XMLStreamException {
+        truncated = true;
+        altEventType = END_ELEMENT;
+        altQName = rootName;
+        super.close();
+        if (source != null) {
+            try {
+                source.close();
+            } catch (IOException e) {
+            }
+        }
+        return END_ELEMENT;
+    }
+
+    @Override
+    public boolean hasNext() throws XMLStreamException {
+        return truncated ? altEventType != END_DOCUMENT : super.hasNext();
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        if (!truncated)
+            super.close();
+    }
+
     private void mapAttributes() {
         attributeCount = 0;
         int orgAttCount = super.getAttributeCount();
@@ -107,6 +193,10 @@ class FOMStAXFilter extends XMLStreamReaderWrapper {
     @Override
     public int next() throws XMLStreamException {
         resetEvent();
+        if (truncated) {
+            altEventType = END_DOCUMENT;
+            return END_DOCUMENT;
+        }
         while (true) {
             int eventType = super.next();
             if (depthInSkipElement > 0) {
@@ -135,8 +225,14 @@ class FOMStAXFilter extends XMLStreamReaderWrapper {
                         // shouldn't be that big of a problem
                         continue;
                     case START_ELEMENT:
+                        if (projectionStates != null && !project()) {
+                            depthInSkipElement = 1;
+                            continue;
+                        }
                         ParseFilter filter = parserOptions.getParseFilter();
                         if (filter != null && !filter.acceptable(super.getName())) {
+                            if (projectionStates != null)
+                                projectionDepth--;
                             depthInSkipElement = 1;
                             continue;
                         }
@@ -144,8 +240,14 @@ class FOMStAXFilter extends XMLStreamReaderWrapper {
                         if (attributeMap != null) {
                             mapAttributes();
                         }
+                        if (maxEntries >= 0 && limitReached())
+                            return truncate();
+                        depth++;
                         break;
                     case END_ELEMENT:
+                        depth--;
+                        if (projectionStates != null)
+                            projectionDepth--;
                         translateQName();
                         break;
                     case SPACE:
@@ -57,6 +57,7 @@ public class FOMText extends FOMElement implements Text {
 
     private void init(Type type) {
         this.type = type;
+        discardResolved();
         if (Type.TEXT.equals(type))
             setAttributeValue(TYPE, "text");
         else if (Type.HTML.equals(type))
@@ -78,14 +79,14 @@ public class FOMText extends FOMElement implements Text {
     }
 
     public Div getValueElement() {
-        return (Div)this.getFirstChildWithName(Constants.DIV);
+        return (Div)this._getFirstChildWithName(Constants.DIV);
     }
 
     public Text setValueElement(Div value) {
         complete();
         if (value != null) {
-            if (this.getFirstChildWithName(Constants.DIV) != null)
-                this.getFirstChildWithName(Constants.DIV).discard();
+            if (this._getFirstChildWithName(Constants.DIV) != null)
+                this._getFirstChildWithName(Constants.DIV).discard();
             init(Text.Type.XHTML);
             removeChildren();
             addChild((OMElement)value);
@@ -101,7 +102,7 @@ public class FOMText extends FOMElement implements Text {
         } else if (Type.HTML.equals(type)) {
             val = getText();
         } else if (Type.XHTML.equals(type)) {
-            FOMDiv div = (FOMDiv)this.getFirstChildWithName(Constants.DIV);
+            FOMDiv div = (FOMDiv)this._getFirstChildWithName(Constants.DIV);
             val = (div != null) ? div.getInternalValue() : null;
         }
         return val;
@@ -112,6 +113,7 @@ public class FOMText extends FOMElement implements Text {
     }
 
     public <T extends Element> T setText(Text.Type type, String value) {
+        checkModifiable();
         complete();
         init(type);
         if (value != null) {
@@ -154,7 +156,7 @@ public class FOMText extends FOMElement implements Text {
 
     public String getWrappedValue() {
         if (Type.XHTML.equals(type)) {
-            return this.getFirstChildWithName(Constants.DIV).toString();
+            return this._getFirstChildWithName(Constants.DIV).toString();
         } else {
             return getValue();
         }
@@ -196,26 +198,32 @@ public class FOMText extends FOMElement implements Text {
     }
 
     @Override
-    public IRI getResolvedBaseUri() {
+    protected IRI computeResolvedBaseUri(IRI baseUri) {
         if (Type.XHTML.equals(type)) {
             Element el = getValueElement();
             if (el != null) {
                 if (el.getAttributeValue(BASE) != null) {
-                    return super.getResolvedBaseUri().resolve(el.getAttributeValue(BASE));
+                    return super.computeResolvedBaseUri(baseUri).resolve(el.getAttributeValue(BASE));
                 }
             }
         }
-        return super.getResolvedBaseUri();
+        return super.computeResolvedBaseUri(baseUri);
     }
 
     @Override
-    public String getLanguage() {
+    protected String computeLanguage(String parentLang) {
         if (Type.XHTML.equals(type)) {
             Element el = getValueElement();
             if (el != null && el.getAttributeValue(LANG) != null)
                 return el.getAttributeValue(LANG);
         }
-        return super.getLanguage();
+        return super.computeLanguage(parentLang);
+    }
+
+    @Override
+    protected void childrenChanged() {
+        super.childrenChanged();
+        discardResolved();
     }
 
     @Override
@@ -18,9 +18,13 @@
 package org.apache.abdera.parser.stax;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.namespace.QName;
 
@@ -29,10 +33,13 @@ import org.apache.abdera.model.Base;
 import org.apache.abdera.model.ElementWrapper;
 import org.apache.abdera.parser.stax.util.ResolveFunction;
 import org.apache.abdera.util.AbstractXPath;
+import org.apache.abdera.xpath.CompiledXPath;
 import org.apache.abdera.xpath.XPathException;
 import org.apache.axiom.om.OMAttribute;
 import org.apache.axiom.om.xpath.DocumentNavigator;
 import org.jaxen.BaseXPath;
+import org.jaxen.Context;
+import org.jaxen.ContextSupport;
 import org.jaxen.Function;
 import org.jaxen.FunctionContext;
 import org.jaxen.JaxenException;
@@ -44,8 +51,16 @@ import org.jaxen.XPath;
 @SuppressWarnings("unchecked")
 public class FOMXPath extends AbstractXPath {
 
+    /**
+     * The maximum number of compiled expressions kept in the cache. The cache is emptied when it grows beyond this size
+     */
+    private static final int CACHE_SIZE = 256;
+
     private final Map<QName, Function> functions;
     private final Map<QName, Object> variables;
+    private final ConcurrentMap<CacheKey, XPath> cache = new ConcurrentHashMap<CacheKey, XPath>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
 
     public FOMXPath(Abdera abdera) {
         this(null, null, null);
@@ -135,18 +150,8 @@ public class FOMXPath extends AbstractXPath {
                             Map<QName, Function> functions,
                             Map<QName, Object> variables) throws XPathException {
         try {
-            base = getElementWrapped(base);
-            List nodes = new ArrayList();
-            XPath xpath = getXPath(path, namespaces, functions, variables);
-            List results = xpath.selectNodes(base);
-            for (Object obj : results) {
-                if (obj instanceof OMAttribute) {
-                    nodes.add(new FOMAttribute((OMAttribute)obj));
-                } else {
-                    nodes.add(obj);
-                }
-            }
-            return nodes;
+            XPath xpath = getCompiledXPath(path, namespaces, functions);
+            return selectNodes(xpath, getContext(xpath, base, variables));
         } catch (JaxenException e) {
             throw new XPathException(e);
         }
@@ -162,12 +167,8 @@ public class FOMXPath extends AbstractXPath {
                                    Map<QName, Function> functions,
                                    Map<QName, Object> variables) throws XPathException {
         try {
-            base = getElementWrapped(base);
-            XPath xpath = getXPath(path, namespaces, functions, variables);
-            Object obj = xpath.selectSingleNode(base);
-            if (obj instanceof OMAttribute)
-                obj = new FOMAttribute((OMAttribute)obj);
-            return obj;
+            XPath xpath = getCompiledXPath(path, namespaces, functions);
+            return selectSingleNode(xpath, getContext(xpath, base, variables));
         } catch (JaxenException e) {
             throw new XPathException(e);
         }
@@ -183,9 +184,8 @@ public class FOMXPath extends AbstractXPath {
                            Map<QName, Function> functions,
                            Map<QName, Object> variables) throws XPathException {
         try {
-            base = getElementWrapped(base);
-            XPath xpath = getXPath(path, namespaces, functions, variables);
-            return xpath.evaluate(base);
+            XPath xpath = getCompiledXPath(path, namespaces, functions);
+            return xpath.evaluate(getContext(xpath, base, variables));
         } catch (JaxenException e) {
             throw new XPathException(e);
         }
@@ -201,9 +201,8 @@ public class FOMXPath extends AbstractXPath {
                           Map<QName, Function> functions,
                           Map<QName, Object> variables) throws XPathException {
         try {
-            base = getElementWrapped(base);
-            XPath xpath = getXPath(path, namespaces, functions, variables);
-            return xpath.stringValueOf(base);
+            XPath xpath = getCompiledXPath(path, namespaces, functions);
+            return xpath.stringValueOf(getContext(xpath, base, variables));
         } catch (JaxenException e) {
             throw new XPathException(e);
         }
@@ -219,9 +218,8 @@ public class FOMXPath extends AbstractXPath {
                                   Map<QName, Function> functions,
                                   Map<QName, Object> variables) throws XPathException {
         try {
-            base = getElementWrapped(base);
-            XPath xpath = getXPath(path, namespaces, functions, variables);
-            return xpath.booleanValueOf(base);
+            XPath xpath = getCompiledXPath(path, namespaces, functions);
+            return xpath.booleanValueOf(getContext(xpath, base, variables));
         } catch (JaxenException e) {
             throw new XPathException(e);
         }
@@ -237,9 +235,8 @@ public class FOMXPath extends AbstractXPath {
                                  Map<QName, Function> functions,
                                  Map<QName, Object> variables) throws XPathException {
         try {
-            base = getElementWrapped(base);
-            XPath xpath = getXPath(path, namespaces, functions, variables);
-            return xpath.numberValueOf(base);
+            XPath xpath = getCompiledXPath(path, namespaces, functions);
+            return xpath.numberValueOf(getContext(xpath, base, variables));
         } catch (JaxenException e) {
             throw new XPathException(e);
         }
@@ -267,10 +264,219 @@ public class FOMXPath extends AbstractXPath {
         this.variables.putAll(variables);
     }
 
-    private Base getElementWrapped(Base base) {
+    /**
+     * Compile the specified Path using the specified Namespaces mapping and the default functions and variables
+     */
+    public CompiledXPath compile(String path, Map<String, String> namespaces) throws XPathException {
+        return compile(path, namespaces, functions, variables);
+    }
+
+    /**
+     * Compile the specified Path using the specified Namespaces, functions and variables
+     */
+    public CompiledXPath compile(String path,
+                                 Map<String, String> namespaces,
+                                 Map<QName, Function> functions,
+                                 Map<QName, Object> variables) throws XPathException {
+        try {
+            Map<QName, Object> bound = (variables != null) ? new HashMap<QName, Object>(variables) : null;
+            return new FOMCompiledXPath(path, getCompiledXPath(path, namespaces, functions), bound);
+        } catch (JaxenException e) {
+            throw new XPathException(e);
+        }
+    }
+
+    /**
+     * Return the number of times a compiled expression was found in the cache
+     */
+    public long getCacheHits() {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of times an expression had to be compiled
+     */
+    public long getCacheMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Discard all cached compiled expressions
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * Returns the compiled form of the path for the given namespaces and functions, compiling it only if it is not
+     * already cached. Variables are not part of the compiled form; their values are bound on each evaluation by
+     * getContext. The returned XPath is shared and must not be modified.
+     */
+    private XPath getCompiledXPath(String path, Map<String, String> namespaces, Map<QName, Function> functions)
+        throws JaxenException {
+        CacheKey key = new CacheKey(path, namespaces, functions);
+        XPath xpath = cache.get(key);
+        if (xpath != null) {
+            hits.incrementAndGet();
+            return xpath;
+        }
+        misses.incrementAndGet();
+        xpath = getXPath(path, namespaces, functions, null);
+        // create the expression's context support now rather than lazily on first use by some other thread
+        xpath.getNamespaceContext();
+        if (cache.size() >= CACHE_SIZE)
+            cache.clear();
+        cache.put(key.copy(), xpath);
+        return xpath;
+    }
+
+    /**
+     * Returns a context for evaluating the compiled expression against the given node with the given variable values
+     */
+    private static Context getContext(XPath xpath, Base base, Map<QName, Object> variables) {
+        VariableContext variableContext =
+            (variables != null) ? getVariableContext(variables, null) : new SimpleVariableContext();
+        Context context =
+            new Context(new ContextSupport(xpath.getNamespaceContext(), xpath.getFunctionContext(), variableContext,
+                                           xpath.getNavigator()));
+        context.setNodeSet(Collections.singletonList(getElementWrapped(base)));
+        return context;
+    }
+
+    private static List<Object> selectNodes(XPath xpath, Context context) throws JaxenException {
+        List<Object> nodes = new ArrayList<Object>();
+        List<?> results = xpath.selectNodes(context);
+        for (Object obj : results) {
+            if (obj instanceof OMAttribute) {
+                nodes.add(new FOMAttribute((OMAttribute)obj));
+            } else {
+                nodes.add(obj);
+            }
+        }
+        return nodes;
+    }
+
+    private static Object selectSingleNode(XPath xpath, Context context) throws JaxenException {
+        Object obj = xpath.selectSingleNode(context);
+        if (obj instanceof OMAttribute)
+            obj = new FOMAttribute((OMAttribute)obj);
+        return obj;
+    }
+
+    private static Base getElementWrapped(Base base) {
         if (base instanceof ElementWrapper) {
             base = ((ElementWrapper)base).getInternal();
         }
         return base;
     }
+
+    /**
+     * Identifies a compiled expression: the path plus the namespaces and functions bound to it. Lookups use the
+     * caller's maps as they are; a copy is only made when a new entry is added to the cache.
+     */
+    private static final class CacheKey {
+        private final String path;
+        private final Map<String, String> namespaces;
+        private final Map<QName, Function> functions;
+        private final int hash;
+
+        CacheKey(String path, Map<String, String> namespaces, Map<QName, Function> functions) {
+            this.path = path;
+            this.namespaces = namespaces;
+            this.functions = functions;
+            int hash = path.hashCode();
+            hash = hash * 31 + (namespaces != null ? namespaces.hashCode() : 0);
+            hash = hash * 31 + (functions != null ? functions.hashCode() : 0);
+            this.hash = hash;
+        }
+
+        CacheKey copy() {
+            return new CacheKey(path, namespaces != null ? new HashMap<String, String>(namespaces) : null,
+                                functions != null ? new HashMap<QName, Function>(functions) : null);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheKey))
+                return false;
+            CacheKey other = (CacheKey)obj;
+            return hash == other.hash && path.equals(other.path)
+                && (namespaces == null ? other.namespaces == null : namespaces.equals(other.namespaces))
+                && (functions == null ? other.functions == null : functions.equals(other.functions));
+        }
+    }
+
+    private static final class FOMCompiledXPath implements CompiledXPath {
+        private final String path;
+        private final XPath xpath;
+        private final Map<QName, Object> variables;
+
+        FOMCompiledXPath(String path, XPath xpath, Map<QName, Object> variables) {
+            this.path = path;
+            this.xpath = xpath;
+            this.variables = variables;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public List<?> selectNodes(Base base) throws XPathException {
+            try {
+                return FOMXPath.selectNodes(xpath, getContext(xpath, base, variables));
+            } catch (JaxenException e) {
+                throw new XPathException(e);
+            }
+        }
+
+        public Object selectSingleNode(Base base) throws XPathException {
+            try {
+                return FOMXPath.selectSingleNode(xpath, getContext(xpath, base, variables));
+            } catch (JaxenException e) {
+                throw new XPathException(e);
+            }
+        }
+
+        public Object evaluate(Base base) throws XPathException {
+            try {
+                return xpath.evaluate(getContext(xpath, base, variables));
+            } catch (JaxenException e) {
+                throw new XPathException(e);
+            }
+        }
+
+        public String valueOf(Base base) throws XPathException {
+            try {
+                return xpath.stringValueOf(getContext(xpath, base, variables));
+            } catch (JaxenException e) {
+                throw new XPathException(e);
+            }
+        }
+
+        public boolean booleanValueOf(Base base) throws XPathException {
+            try {
+                return xpath.booleanValueOf(getContext(xpath, base, variables));
+            } catch (JaxenException e) {
+                throw new XPathException(e);
+            }
+        }
+
+        public Number numericValueOf(Base base) throws XPathException {
+            try {
+                return xpath.numberValueOf(getContext(xpath, base, variables));
+            } catch (JaxenException e) {
+                throw new XPathException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return path;
+        }
+    }
 }
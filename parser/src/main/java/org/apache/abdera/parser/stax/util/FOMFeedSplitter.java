@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.parser.stax.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.abdera.util.Constants;
+
+/**
+ * Scans the bytes of an Atom feed document for the boundaries of its top-level entries without parsing it, so that the
+ * entries can be parsed independently. Each fragment returned by {@link #getFragment(int, int)} wraps a run of entries
+ * in a copy of the feed's start tag, so the in-scope namespaces, xml:base and xml:lang of every entry are the same as
+ * in the original document. The skeleton returned by {@link #getSkeleton()} is the original document with every entry
+ * replaced by an empty placeholder entry. Only ASCII compatible encodings can be scanned; documents with a DOCTYPE
+ * (and therefore possibly entity declarations) are not split.
+ * <p>
+ * A splitter can either scan a complete document, see {@link #split(byte[], int)}, or scan a document incrementally as
+ * its bytes arrive, see {@link #update(byte[], int, boolean)}.
+ */
+public final class FOMFeedSplitter implements Constants {
+
+    private static final byte[] PLACEHOLDER = ascii("<entry xmlns=\"" + ATOM_NS + "\"/>");
+
+    private static final int MORE = -1;
+    private static final int INVALID = -2;
+
+    private byte[] buf;
+    private int len;
+    private boolean last;
+    private boolean complete;
+    private boolean invalid;
+    private int p;
+    private int depth;
+    private int entryStart = -1;
+    private int rootStart, rootStartEnd;
+    private String rootName;
+    private final Map<String, String> namespaces = new HashMap<String, String>();
+    private final List<int[]> entries = new ArrayList<int[]>();
+
+    /**
+     * Returns a splitter for the given complete document, or null if the document is not an Atom feed that can be
+     * split
+     */
+    public static FOMFeedSplitter split(byte[] buf, int len) {
+        FOMFeedSplitter splitter = new FOMFeedSplitter();
+        return splitter.update(buf, len, true) && splitter.isComplete() ? splitter : null;
+    }
+
+    /**
+     * Continues scanning after more of the document has arrived. The buffer may be a different array than the one
+     * previously passed in, but must start with the same bytes. Returns false once it is known that the document
+     * cannot be split.
+     * 
+     * @param buf The document bytes received so far
+     * @param len The number of valid bytes in the buffer
+     * @param last True if the buffer contains the complete document
+     */
+    public boolean update(byte[] buf, int len, boolean last) {
+        this.buf = buf;
+        this.len = len;
+        this.last = last;
+        if (!complete && !invalid && (rootName != null || prolog()))
+            content();
+        return !invalid;
+    }
+
+    /**
+     * True once the end of the feed has been scanned
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the length in bytes of the i'th entry
+     */
+    public int getEntryLength(int i) {
+        int[] range = entries.get(i);
+        return range[1] - range[0];
+    }
+
+    /**
+     * Returns the document with each entry replaced by an empty placeholder entry
+     */
+    public byte[] getSkeleton() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(len - totalEntryLength() + entries.size() * 64);
+        int p = 0;
+        for (int[] range : entries) {
+            out.write(buf, p, range[0] - p);
+            out.write(PLACEHOLDER, 0, PLACEHOLDER.length);
+            p = range[1];
+        }
+        out.write(buf, p, len - p);
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns a feed document containing the entries from index from (inclusive) to to (exclusive)
+     */
+    public byte[] getFragment(int from, int to) {
+        byte[] end = ascii("</" + rootName + ">");
+        int size = rootStartEnd - rootStart + end.length;
+        for (int i = from; i < to; i++)
+            size += getEntryLength(i);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.write(buf, rootStart, rootStartEnd - rootStart);
+        for (int i = from; i < to; i++) {
+            int[] range = entries.get(i);
+            out.write(buf, range[0], range[1] - range[0]);
+        }
+        out.write(end, 0, end.length);
+        return out.toByteArray();
+    }
+
+    private int totalEntryLength() {
+        int total = 0;
+        for (int i = 0; i < entries.size(); i++)
+            total += getEntryLength(i);
+        return total;
+    }
+
+    private boolean more() {
+        if (last)
+            invalid = true;
+        return false;
+    }
+
+    private boolean invalid() {
+        invalid = true;
+        return false;
+    }
+
+    /**
+     * Scans up to and including the root start tag. Returns true once it has been scanned.
+     */
+    private boolean prolog() {
+        if (p == 0 && prefix(0, "\u00EF\u00BB\u00BF") != 0) {
+            if (prefix(0, "\u00EF\u00BB\u00BF") < 0)
+                return more();
+            p = 3;
+        }
+        while (true) {
+            int q = skipWhitespace(p);
+            if (q >= len)
+                return more();
+            if (buf[q] != '<')
+                return invalid();
+            int m;
+            if ((m = prefix(q, "<?")) != 0) {
+                q = m < 0 ? MORE : skipPast(q + 2, "?>");
+            } else if ((m = prefix(q, "<!--")) != 0) {
+                q = m < 0 ? MORE : skipPast(q + 4, "-->");
+            } else if ((m = prefix(q, "<!")) != 0) {
+                return m < 0 ? more() : invalid();
+            } else {
+                break;
+            }
+            if (q == MORE)
+                return more();
+            p = q;
+        }
+        int start = skipWhitespace(p);
+        Map<String, String> attrs = new HashMap<String, String>();
+        int end = parseStartTag(start, attrs);
+        if (end == MORE)
+            return more();
+        if (end == INVALID || buf[end - 2] == '/')
+            return invalid();
+        rootName = tagName(start);
+        namespaces.putAll(declarations(attrs));
+        if (!isAtom(rootName, namespaces, LN_FEED))
+            return invalid();
+        rootStart = start;
+        rootStartEnd = end;
+        depth = 1;
+        p = end;
+        return true;
+    }
+
+    private void content() {
+        Map<String, String> attrs = new HashMap<String, String>();
+        while (p < len) {
+            if (buf[p] != '<') {
+                p++;
+                continue;
+            }
+            int m, q;
+            if ((m = prefix(p, "<!--")) != 0) {
+                q = m < 0 ? MORE : skipPast(p + 4, "-->");
+            } else if ((m = prefix(p, "<![CDATA[")) != 0) {
+                q = m < 0 ? MORE : skipPast(p + 9, "]]>");
+            } else if ((m = prefix(p, "<?")) != 0) {
+                q = m < 0 ? MORE : skipPast(p + 2, "?>");
+            } else if ((m = prefix(p, "</")) != 0) {
+                q = m < 0 ? MORE : skipPast(p + 2, ">");
+                if (q != MORE) {
+                    p = q;
+                    if (--depth == 0) {
+                        complete = true;
+                        return;
+                    }
+                    if (depth == 1 && entryStart != -1) {
+                        entries.add(new int[] {entryStart, p});
+                        entryStart = -1;
+                    }
+                    continue;
+                }
+            } else {
+                attrs.clear();
+                q = parseStartTag(p, attrs);
+                if (q == INVALID) {
+                    invalid();
+                    return;
+                }
+                if (q != MORE) {
+                    boolean empty = buf[q - 2] == '/';
+                    if (depth == 1) {
+                        Map<String, String> scope = namespaces;
+                        Map<String, String> local = declarations(attrs);
+                        if (!local.isEmpty()) {
+                            scope = new HashMap<String, String>(namespaces);
+                            scope.putAll(local);
+                        }
+                        if (isAtom(tagName(p), scope, LN_ENTRY)) {
+                            if (empty)
+                                entries.add(new int[] {p, q});
+                            else
+                                entryStart = p;
+                        }
+                    }
+                    if (!empty)
+                        depth++;
+                }
+            }
+            if (q == MORE) {
+                more();
+                return;
+            }
+            p = q;
+        }
+        more();
+    }
+
+    /**
+     * Returns the position following the start tag at p, MORE if the tag is incomplete or INVALID if it is malformed.
+     * Attributes are collected into the map.
+     */
+    private int parseStartTag(int p, Map<String, String> attrs) {
+        p = skipName(p + 1);
+        while (true) {
+            p = skipWhitespace(p);
+            if (p >= len)
+                return MORE;
+            if (buf[p] == '>')
+                return p + 1;
+            if (buf[p] == '/') {
+                if (p + 1 >= len)
+                    return MORE;
+                return buf[p + 1] == '>' ? p + 2 : INVALID;
+            }
+            int n = p;
+            p = skipName(p);
+            if (p >= len)
+                return MORE;
+            if (p == n)
+                return INVALID;
+            String name = string(n, p - n);
+            p = skipWhitespace(p);
+            if (p >= len)
+                return MORE;
+            if (buf[p] != '=')
+                return INVALID;
+            p = skipWhitespace(p + 1);
+            if (p >= len)
+                return MORE;
+            byte quote = buf[p];
+            if (quote != '"' && quote != '\'')
+                return INVALID;
+            int v = ++p;
+            while (p < len && buf[p] != quote)
+                p++;
+            if (p >= len)
+                return MORE;
+            attrs.put(name, string(v, p - v));
+            p++;
+        }
+    }
+
+    private String tagName(int p) {
+        return string(p + 1, skipName(p + 1) - p - 1);
+    }
+
+    private String string(int p, int n) {
+        char[] c = new char[n];
+        for (int i = 0; i < n; i++)
+            c[i] = (char)(buf[p + i] & 0xFF);
+        return new String(c);
+    }
+
+    private static Map<String, String> declarations(Map<String, String> attrs) {
+        Map<String, String> decls = new HashMap<String, String>();
+        for (Map.Entry<String, String> attr : attrs.entrySet()) {
+            String name = attr.getKey();
+            if (name.equals("xmlns"))
+                decls.put("", attr.getValue());
+            else if (name.startsWith("xmlns:"))
+                decls.put(name.substring(6), attr.getValue());
+        }
+        return decls;
+    }
+
+    private static boolean isAtom(String qname, Map<String, String> scope, String localName) {
+        int c = qname.indexOf(':');
+        String prefix = c == -1 ? "" : qname.substring(0, c);
+        return qname.substring(c + 1).equals(localName) && ATOM_NS.equals(scope.get(prefix));
+    }
+
+    private int skipName(int p) {
+        while (p < len) {
+            byte b = buf[p];
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '>' || b == '/' || b == '=')
+                break;
+            p++;
+        }
+        return p;
+    }
+
+    private int skipWhitespace(int p) {
+        while (p < len && (buf[p] == ' ' || buf[p] == '\t' || buf[p] == '\r' || buf[p] == '\n'))
+            p++;
+        return p;
+    }
+
+    /**
+     * Returns 1 if the bytes at p match s, 0 if they do not, or -1 if they match so far but too few bytes are
+     * available to tell
+     */
+    private int prefix(int p, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (p + i >= len)
+                return last ? 0 : -1;
+            if (buf[p + i] != (byte)s.charAt(i))
+                return 0;
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the position following the next occurrence of s at or after p, or MORE if there is none yet
+     */
+    private int skipPast(int p, String s) {
+        for (int i = p; i + s.length() <= len; i++)
+            if (prefix(i, s) == 1)
+                return i + s.length();
+        return MORE;
+    }
+
+    private static byte[] ascii(String s) {
+        byte[] b = new byte[s.length()];
+        for (int i = 0; i < b.length; i++)
+            b[i] = (byte)s.charAt(i);
+        return b;
+    }
+
+}
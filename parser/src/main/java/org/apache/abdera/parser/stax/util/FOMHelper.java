@@ -18,13 +18,19 @@
 package org.apache.abdera.parser.stax.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import org.apache.abdera.model.Category;
 import org.apache.abdera.model.Element;
 import org.apache.abdera.model.Link;
+import org.apache.abdera.parser.stax.FOMLink;
 import org.apache.abdera.util.Constants;
+import org.apache.axiom.om.OMElement;
 import org.apache.axiom.util.UIDGenerator;
 
 @SuppressWarnings("unchecked")
@@ -49,6 +55,51 @@ public class FOMHelper implements Constants {
         return links;
     }
 
+    /**
+     * Index the child links of the element by rel attribute value, with the same matching rules as getLinks. Links
+     * without a rel attribute are indexed as alternate links.
+     */
+    public static Map<String, List<Link>> getLinkIndex(Element element) {
+        Map<String, List<Link>> index = new HashMap<String, List<Link>>();
+        for (Iterator<?> i = ((OMElement)element).getChildElements(); i.hasNext();) {
+            Object child = i.next();
+            if (child instanceof Link) {
+                Link link = (Link)child;
+                String key = getLinkIndexKey(link.getAttributeValue(REL));
+                List<Link> links = index.get(key);
+                if (links == null) {
+                    links = new ArrayList<Link>(1);
+                    index.put(key, links);
+                }
+                links.add(link);
+            }
+        }
+        for (Map.Entry<String, List<Link>> entry : index.entrySet())
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        return index;
+    }
+
+    /**
+     * Return the links of the element indexed under the given rel. Returns null if one of them has since been moved or
+     * had its rel attribute changed through the Axiom API, in which case the index has to be rebuilt. Links inserted
+     * through the Axiom API are not detected.
+     */
+    public static List<Link> getLinks(Element element, Map<String, List<Link>> index, String rel) {
+        String key = getLinkIndexKey(rel);
+        List<Link> links = index.get(key);
+        if (links == null)
+            return Collections.<Link> emptyList();
+        for (Link link : links) {
+            if (((OMElement)link).getParent() != element || !key.equals(getLinkIndexKey(link.getAttributeValue(REL))))
+                return null;
+        }
+        return links;
+    }
+
+    private static String getLinkIndexKey(String rel) {
+        return (rel != null) ? FOMLink.getRelEquiv(rel).toLowerCase(Locale.ENGLISH) : Link.REL_ALTERNATE;
+    }
+
     public static String generateUuid() {
         return UIDGenerator.generateURNString();
     }
@@ -17,38 +17,62 @@
  */
 package org.apache.abdera.parser.stax.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamReader;
+import java.io.SequenceInputStream;
 
 import org.apache.abdera.i18n.text.io.CharsetSniffingInputStream;
 import org.apache.abdera.i18n.text.io.PeekAheadInputStream;
+import org.apache.abdera.util.XmlUtil;
 
 /**
  * Will attempt to autodetect the character encoding from the stream This will preserve the BOM if it exists.
  */
 public class FOMSniffingInputStream extends CharsetSniffingInputStream {
 
+    private static final int PEEK_SIZE = 200;
+
+    private byte[] head;
+    private int headLength;
+
     public FOMSniffingInputStream(InputStream in) {
         super(in);
+        // Once the encoding is known there is nothing left to peek at. Replay the peeked bytes and then read straight
+        // from the source so that PeekAheadInputStream does not keep a copy of every byte read in its rewind buffer.
+        if (!(in instanceof PeekAheadInputStream) && head != null) {
+            this.in = new SequenceInputStream(new ByteArrayInputStream(head, 0, headLength), in);
+        }
+        head = null;
     }
 
     protected String detectEncoding() throws IOException {
         String charset = super.detectEncoding();
         PeekAheadInputStream pin = getInternal();
         try {
-            byte[] p = new byte[200];
-            pin.peek(p);
-            XMLStreamReader xmlreader =
-                XMLInputFactory.newInstance().createXMLStreamReader(new java.io.ByteArrayInputStream(p));
-            String cs = xmlreader.getCharacterEncodingScheme();
-            if (cs != null)
-                charset = cs;
+            byte[] p = new byte[PEEK_SIZE];
+            int r = pin.peek(p);
+            if (r > 0) {
+                head = p;
+                headLength = r;
+                // A byte order mark takes precedence over the declared encoding
+                String cs = getDeclaredEncoding(p, r, charset);
+                if (cs != null && !isBomSet())
+                    charset = cs;
+            }
         } catch (Exception e) {
         }
         return charset;
     }
 
+    /**
+     * Returns the value of the encoding pseudo-attribute of the XML declaration at the start of the buffer, if any.
+     * The buffer is decoded using the encoding detected from the byte order mark, or as ISO-8859-1 if none was
+     * detected, which is sufficient for the ASCII-only declaration in any ASCII compatible encoding.
+     */
+    private static String getDeclaredEncoding(byte[] buf, int len, String charset) throws IOException {
+        String s = new String(buf, 0, len, charset != null ? charset : "ISO-8859-1");
+        return XmlUtil.getDeclarationAttribute(s, "encoding");
+    }
+
 }
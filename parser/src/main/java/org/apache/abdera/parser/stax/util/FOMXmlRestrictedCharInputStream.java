@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.parser.stax.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
+import org.apache.abdera.util.XmlUtil;
+import org.apache.abdera.util.XmlUtil.XMLVersion;
+
+/**
+ * An InputStream that filters out characters that are not allowed in XML 1.0 or XML 1.1 documents without decoding
+ * the stream. Unlike FOMXmlRestrictedCharReader, this allows the StAX parser to keep reading bytes with its own
+ * decoders. Only UTF-8, UTF-16 and single byte ISO-8859-1/US-ASCII encoded streams are supported, see
+ * {@link #isSupported(String)}. The XML version is read from the XML declaration at the start of the stream. By
+ * default, invalid characters are simply removed from the stream. Alternatively, a replacement character can be
+ * provided so long as it is a valid XML character itself.
+ */
+public class FOMXmlRestrictedCharInputStream extends FilterInputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int PEEK_SIZE = 200;
+
+    private static final int UTF8 = 0, UTF16BE = 1, UTF16LE = 2, SINGLE_BYTE = 3;
+
+    private static final boolean[] RESTRICTED_v1 = lowRestricted(XMLVersion.XML10);
+
+    private static final boolean[] RESTRICTED_v11 = lowRestricted(XMLVersion.XML11);
+
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+    private boolean eof = false;
+    private int clean = 0; // bytes at pos already known not to contain restricted characters
+
+    private final int encoding;
+    private final XMLVersion version;
+    private final boolean[] restricted;
+    private final byte[] replacement;
+    private byte[] pending = null;
+    private int pendingPos = 0;
+
+    public FOMXmlRestrictedCharInputStream(InputStream in, String charset) throws IOException {
+        this(in, charset, (char)0);
+    }
+
+    public FOMXmlRestrictedCharInputStream(InputStream in, String charset, char replacement) throws IOException {
+        super(in);
+        String name = canonicalName(charset);
+        if (name == null)
+            throw new UnsupportedEncodingException(charset);
+        fill(PEEK_SIZE);
+        if (name.equals("UTF-8")) {
+            encoding = UTF8;
+        } else if (name.equals("UTF-16BE")) {
+            encoding = UTF16BE;
+        } else if (name.equals("UTF-16LE")) {
+            encoding = UTF16LE;
+        } else if (name.equals("UTF-16")) {
+            encoding = limit >= 2 && buf[0] == (byte)0xFF && buf[1] == (byte)0xFE ? UTF16LE : UTF16BE;
+        } else {
+            encoding = SINGLE_BYTE;
+        }
+        String javaName = encoding == UTF16BE ? "UTF-16BE" : encoding == UTF16LE ? "UTF-16LE" : name;
+        String prolog = new String(buf, 0, limit, javaName);
+        this.version = XmlUtil.getVersion(XmlUtil.getDeclarationAttribute(prolog, "version"));
+        this.restricted = version == XMLVersion.XML10 ? RESTRICTED_v1 : RESTRICTED_v11;
+        this.replacement = replacement != 0 ? String.valueOf(replacement).getBytes(javaName) : new byte[0];
+    }
+
+    /**
+     * Returns true if streams in the given character encoding can be filtered
+     */
+    public static boolean isSupported(String charset) {
+        return canonicalName(charset) != null;
+    }
+
+    private static String canonicalName(String charset) {
+        if (charset == null)
+            return null;
+        try {
+            String name = Charset.forName(charset).name();
+            return name.equals("UTF-8") || name.equals("UTF-16")
+                || name.equals("UTF-16BE")
+                || name.equals("UTF-16LE")
+                || name.equals("ISO-8859-1")
+                || name.equals("US-ASCII") ? name : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static boolean[] lowRestricted(XMLVersion version) {
+        boolean[] table = new boolean[256];
+        for (int c = 0; c < table.length; c++)
+            table[c] = XmlUtil.restricted(version, c);
+        return table;
+    }
+
+    public XMLVersion getVersion() {
+        return version;
+    }
+
+    /**
+     * Make sure at least n bytes are buffered, unless the end of the stream is reached first
+     */
+    private boolean fill(int n) throws IOException {
+        if (limit - pos >= n)
+            return true;
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (!eof && limit < n) {
+            int r = in.read(buf, limit, buf.length - limit);
+            if (r == -1)
+                eof = true;
+            else
+                limit += r;
+        }
+        return limit >= n;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int r = read(b, 0, 1);
+        return r == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = 0;
+        while (n < len) {
+            if (pending != null) {
+                int c = Math.min(len - n, pending.length - pendingPos);
+                System.arraycopy(pending, pendingPos, b, off + n, c);
+                n += c;
+                pendingPos += c;
+                if (pendingPos == pending.length)
+                    pending = null;
+                continue;
+            }
+            // Only block for more input if nothing has been returned yet
+            if (clean == 0 && pos == limit && (n > 0 || !fill(1)))
+                break;
+            if (clean == 0) {
+                int skip = restrictedLength();
+                if (skip > 0) {
+                    pos += skip;
+                    if (replacement.length > 0) {
+                        pending = replacement;
+                        pendingPos = 0;
+                    }
+                    continue;
+                }
+                clean = -skip;
+            }
+            int c = Math.min(clean, len - n);
+            System.arraycopy(buf, pos, b, off + n, c);
+            pos += c;
+            n += c;
+            clean -= c;
+        }
+        return n == 0 && len > 0 ? -1 : n;
+    }
+
+    /**
+     * Returns the number of bytes of the restricted character at the current position, or the negated number of bytes
+     * that can be copied as-is
+     */
+    private int restrictedLength() throws IOException {
+        switch (encoding) {
+            case UTF8:
+                return utf8();
+            case UTF16BE:
+            case UTF16LE:
+                return utf16();
+            default:
+                int i = pos;
+                while (i < limit && !restricted[buf[i] & 0xFF])
+                    i++;
+                return i == pos ? 1 : pos - i;
+        }
+    }
+
+    private int utf8() throws IOException {
+        int i = pos;
+        while (i < limit) {
+            int b = buf[i] & 0xFF;
+            if (b < 0x80) {
+                if (restricted[b])
+                    break;
+            } else if (b == 0xC2 || b == 0xED || b == 0xEF) {
+                // the only lead bytes that can start a restricted sequence: U+0080-U+009F, surrogates and U+FFFE/F
+                if (i > pos)
+                    return pos - i;
+                int l = b == 0xC2 ? 2 : 3;
+                if (!fill(l))
+                    return pos - limit;
+                int b1 = buf[pos + 1] & 0xFF;
+                if (b == 0xC2)
+                    return restricted[b1] ? 2 : -2;
+                if (b == 0xED)
+                    return b1 >= 0xA0 ? 3 : -3;
+                int b2 = buf[pos + 2] & 0xFF;
+                return b1 == 0xBF && (b2 == 0xBE || b2 == 0xBF) ? 3 : -3;
+            }
+            i++;
+        }
+        return i == pos ? 1 : pos - i;
+    }
+
+    private int utf16() throws IOException {
+        int i = pos;
+        while (true) {
+            if (limit - i < 2) {
+                if (i > pos)
+                    return pos - i;
+                if (!fill(2))
+                    return pos - limit;
+                i = pos;
+                continue;
+            }
+            int c = encoding == UTF16BE ? ((buf[i] & 0xFF) << 8) | (buf[i + 1] & 0xFF)
+                : ((buf[i + 1] & 0xFF) << 8) | (buf[i] & 0xFF);
+            if (c < 0x100) {
+                if (restricted[c])
+                    break;
+            } else if (c >= 0xD800 && c < 0xDC00) {
+                // a high surrogate is allowed only when followed by a low surrogate
+                if (limit - i < 4) {
+                    if (i > pos)
+                        return pos - i;
+                    if (!fill(4))
+                        return 2;
+                    i = pos;
+                    continue;
+                }
+                int d = encoding == UTF16BE ? ((buf[i + 2] & 0xFF) << 8) | (buf[i + 3] & 0xFF)
+                    : ((buf[i + 3] & 0xFF) << 8) | (buf[i + 2] & 0xFF);
+                if (d < 0xDC00 || d >= 0xE000)
+                    break;
+                i += 2;
+            } else if ((c >= 0xDC00 && c < 0xE000) || c >= 0xFFFE) {
+                break;
+            }
+            i += 2;
+        }
+        return i == pos ? 2 : pos - i;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] b = new byte[(int)Math.min(n, BUFFER_SIZE)];
+        long s = 0;
+        while (s < n) {
+            int r = read(b, 0, (int)Math.min(n - s, b.length));
+            if (r == -1)
+                break;
+            s += r;
+        }
+        return s;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (pending != null ? pending.length - pendingPos : 0) + (limit - pos);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+}
@@ -21,10 +21,8 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamReader;
-
 import org.apache.abdera.i18n.text.io.PeekAheadInputStream;
+import org.apache.abdera.util.XmlUtil;
 
 /**
  * Will attempt to autodetect the character encoding from the stream This will preserve the BOM if it exists
@@ -50,10 +48,9 @@ public class FOMXmlVersionInputStream extends FilterInputStream {
         PeekAheadInputStream pin = (PeekAheadInputStream)this.in;
         try {
             byte[] p = new byte[200];
-            pin.peek(p);
-            XMLStreamReader xmlreader =
-                XMLInputFactory.newInstance().createXMLStreamReader(new java.io.ByteArrayInputStream(p));
-            String v = xmlreader.getVersion();
+            int r = pin.peek(p);
+            String prolog = new String(p, 0, Math.max(r, 0), guessEncoding(p, r));
+            String v = XmlUtil.getDeclarationAttribute(prolog, "version");
             if (v != null)
                 version = v;
         } catch (Exception e) {
@@ -61,4 +58,16 @@ public class FOMXmlVersionInputStream extends FilterInputStream {
         return version;
     }
 
+    /**
+     * The declaration only contains ASCII characters, so it is enough to tell UTF-16 apart from the ASCII compatible
+     * encodings
+     */
+    private static String guessEncoding(byte[] p, int r) {
+        if (r >= 2 && ((p[0] == (byte)0xFE && p[1] == (byte)0xFF) || (p[0] == 0x00 && p[1] == 0x3C)))
+            return "UTF-16BE";
+        if (r >= 2 && ((p[0] == (byte)0xFF && p[1] == (byte)0xFE) || (p[0] == 0x3C && p[1] == 0x00)))
+            return "UTF-16LE";
+        return "ISO-8859-1";
+    }
+
 }
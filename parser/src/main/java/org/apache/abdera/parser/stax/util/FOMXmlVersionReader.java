@@ -21,8 +21,7 @@ import java.io.IOException;
 import java.io.PushbackReader;
 import java.io.Reader;
 
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamReader;
+import org.apache.abdera.util.XmlUtil;
 
 public class FOMXmlVersionReader extends PushbackReader {
 
@@ -45,9 +44,9 @@ public class FOMXmlVersionReader extends PushbackReader {
         try {
             char[] p = new char[200];
             int r = read(p);
-            XMLStreamReader xmlreader =
-                XMLInputFactory.newInstance().createXMLStreamReader(new java.io.CharArrayReader(p));
-            String v = xmlreader.getVersion();
+            if (r <= 0)
+                return version;
+            String v = XmlUtil.getDeclarationAttribute(new String(p, 0, r), "version");
             if (v != null)
                 version = v;
             unread(p, 0, r);
@@ -0,0 +1,528 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.parser.stax.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.abdera.model.Base;
+import org.apache.abdera.model.Document;
+import org.apache.abdera.model.Element;
+import org.apache.abdera.model.ElementWrapper;
+import org.apache.abdera.parser.stax.FOMEntry;
+import org.apache.abdera.util.AbstractNamedWriter;
+import org.apache.abdera.util.AbstractWriterOptions;
+import org.apache.abdera.util.Constants;
+import org.apache.abdera.writer.NamedWriter;
+import org.apache.abdera.writer.WriterOptions;
+import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMComment;
+import org.apache.axiom.om.OMContainer;
+import org.apache.axiom.om.OMDocType;
+import org.apache.axiom.om.OMDocument;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMEntityReference;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.OMNode;
+import org.apache.axiom.om.OMProcessingInstruction;
+import org.apache.axiom.om.OMText;
+
+/**
+ * A NamedWriter that serializes the FOM tree straight to UTF-8 bytes, without going through a character Writer and
+ * a StAX serializer. Element names, prefixes and namespace declarations are encoded once and reused, and text and
+ * attribute values are escaped and encoded in a single pass with a fast path for ASCII. Output is collected in a
+ * per-thread buffer and written to the stream in large blocks. If a charset other than UTF-8 is requested the default
+ * serializer is used instead. Entries with serialization caching enabled (see
+ * {@link org.apache.abdera.model.Entry#setSerializationCached(boolean)}) are serialized once per namespace context and
+ * their bytes are copied into the output on later writes.
+ * 
+ * <pre>
+ *   Writer writer = abdera.getWriterFactory().getWriter(&quot;UTF8&quot;);
+ *   feed.writeTo(writer, out);
+ * </pre>
+ */
+public class Utf8Writer extends AbstractNamedWriter implements NamedWriter {
+
+    private static final String[] FORMATS = {"application/atom+xml", "application/atomserv+xml", "application/xml"};
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int CACHE_SIZE = 1024;
+
+    private static final byte[] XML_DECLARATION = ascii("<?xml version='1.0' encoding='UTF-8'?>");
+    private static final byte[] XML_11_DECLARATION = ascii("<?xml version='1.1' encoding='UTF-8'?>");
+    private static final byte[] XMLNS = ascii(" xmlns");
+    private static final byte[] CDATA_START = ascii("<![CDATA[");
+    private static final byte[] CDATA_END = ascii("]]>");
+    private static final byte[] COMMENT_START = ascii("<!--");
+    private static final byte[] COMMENT_END = ascii("-->");
+    private static final byte[] DOCTYPE_START = ascii("<!DOCTYPE ");
+
+    private static final byte[][] TEXT_ESCAPES = new byte[128][];
+    private static final byte[][] ATTRIBUTE_ESCAPES = new byte[128][];
+    static {
+        TEXT_ESCAPES['&'] = ATTRIBUTE_ESCAPES['&'] = ascii("&amp;");
+        TEXT_ESCAPES['<'] = ATTRIBUTE_ESCAPES['<'] = ascii("&lt;");
+        TEXT_ESCAPES['>'] = ascii("&gt;");
+        TEXT_ESCAPES['\r'] = ATTRIBUTE_ESCAPES['\r'] = ascii("&#xD;");
+        ATTRIBUTE_ESCAPES['"'] = ascii("&quot;");
+        ATTRIBUTE_ESCAPES['\t'] = ascii("&#x9;");
+        ATTRIBUTE_ESCAPES['\n'] = ascii("&#xA;");
+    }
+
+    /**
+     * Encoded names and prefixes
+     */
+    private static final Map<String, byte[]> names = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * Encoded namespace declarations, keyed by namespace URI and then by prefix
+     */
+    private static final Map<String, Map<String, byte[]>> declarations =
+        new ConcurrentHashMap<String, Map<String, byte[]>>();
+
+    static {
+        declaration("", Constants.ATOM_NS);
+        declaration("", Constants.APP_NS);
+        declaration("app", Constants.APP_NS);
+        declaration("atom", Constants.ATOM_NS);
+        declaration("", Constants.XHTML_NS);
+        for (String name : new String[] {"feed", "entry", "source", "id", "title", "subtitle", "summary", "content",
+                                         "author", "contributor", "name", "email", "uri", "link", "category",
+                                         "updated", "published", "rights", "generator", "icon", "logo", "service",
+                                         "workspace", "collection", "accept", "categories", "control", "draft",
+                                         "edited", "href", "rel", "type", "term", "scheme", "label", "hreflang",
+                                         "length", "src", "version", "xml", "lang", "base", "div"})
+            name(name);
+    }
+
+    private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>();
+
+    public Utf8Writer() {
+        super("UTF8", FORMATS);
+    }
+
+    public Object write(Base base, WriterOptions options) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(base, out, options);
+        return out.toString("UTF-8");
+    }
+
+    public void writeTo(Base base, OutputStream out, WriterOptions options) throws IOException {
+        out = getCompressedOutputStream(out, options);
+        String charset = options.getCharset();
+        if (charset == null || charset.equalsIgnoreCase("UTF-8") || charset.equalsIgnoreCase("UTF8")) {
+            byte[] buffer = buffers.get();
+            if (buffer != null)
+                buffers.set(null);
+            else
+                buffer = new byte[BUFFER_SIZE];
+            Output output = new Output(out, buffer);
+            if (base instanceof Document)
+                output.document((OMDocument)base);
+            else
+                output.element(getOMElement((Element)base));
+            output.flush();
+            buffers.set(buffer);
+        } else {
+            base.writeTo(new OutputStreamWriter(out, charset));
+        }
+        finishCompressedOutputStream(out, options);
+        if (options.getAutoClose())
+            out.close();
+    }
+
+    public void writeTo(Base base, Writer out, WriterOptions options) throws IOException {
+        base.writeTo(out);
+        if (options.getAutoClose())
+            out.close();
+    }
+
+    @Override
+    protected WriterOptions initDefaultWriterOptions() {
+        return new AbstractWriterOptions() {
+        };
+    }
+
+    private OMElement getOMElement(Element el) {
+        if (el instanceof ElementWrapper) {
+            return getOMElement(((ElementWrapper)el).getInternal());
+        } else
+            return (OMElement)el;
+    }
+
+    private static byte[] ascii(String s) {
+        byte[] b = new byte[s.length()];
+        for (int n = 0; n < b.length; n++)
+            b[n] = (byte)s.charAt(n);
+        return b;
+    }
+
+    private static byte[] utf8(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] name(String name) {
+        byte[] b = names.get(name);
+        if (b == null) {
+            b = utf8(name);
+            if (names.size() >= CACHE_SIZE)
+                names.clear();
+            names.put(name, b);
+        }
+        return b;
+    }
+
+    /**
+     * Returns the encoded form of a namespace declaration, including the leading space: xmlns="uri" or
+     * xmlns:prefix="uri"
+     */
+    private static byte[] declaration(String prefix, String uri) {
+        Map<String, byte[]> prefixes = declarations.get(uri);
+        byte[] b = prefixes != null ? prefixes.get(prefix) : null;
+        if (b == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                Output output = new Output(out, new byte[64]);
+                output.write(XMLNS);
+                if (prefix.length() > 0) {
+                    output.write((byte)':');
+                    output.write(utf8(prefix));
+                }
+                output.write((byte)'=');
+                output.write((byte)'"');
+                output.escape(uri, ATTRIBUTE_ESCAPES);
+                output.write((byte)'"');
+                output.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            b = out.toByteArray();
+            if (prefixes == null) {
+                if (declarations.size() >= CACHE_SIZE)
+                    declarations.clear();
+                prefixes = new ConcurrentHashMap<String, byte[]>();
+                declarations.put(uri, prefixes);
+            }
+            prefixes.put(prefix, b);
+        }
+        return b;
+    }
+
+    /**
+     * Serializes a tree of nodes into a byte buffer, tracking the namespace bindings in scope so that any binding
+     * used by an element or attribute but not declared on one of the serialized ancestors is added to the output.
+     */
+    private static final class Output {
+        private final OutputStream out;
+        private final byte[] buf;
+        private int pos;
+        private String[] prefixes = new String[16];
+        private String[] uris = new String[16];
+        private int bindings;
+
+        Output(OutputStream out, byte[] buf) {
+            this.out = out;
+            this.buf = buf;
+        }
+
+        /**
+         * Creates an Output for a subtree of the given Output, with the same namespace bindings in scope
+         */
+        Output(OutputStream out, byte[] buf, Output context) {
+            this(out, buf);
+            prefixes = context.prefixes.clone();
+            uris = context.uris.clone();
+            bindings = context.bindings;
+        }
+
+        void document(OMDocument doc) throws IOException {
+            write("1.1".equals(doc.getXMLVersion()) ? XML_11_DECLARATION : XML_DECLARATION);
+            children(doc);
+        }
+
+        void element(OMElement element) throws IOException {
+            if (element instanceof FOMEntry && ((FOMEntry)element).isSerializationCached())
+                cached((FOMEntry)element);
+            else
+                serialize(element);
+        }
+
+        /**
+         * Writes the cached serialized form of the entry, serializing and caching it first if there is no cached form
+         * for the current namespace context
+         */
+        private void cached(FOMEntry entry) throws IOException {
+            StringBuilder context = new StringBuilder("UTF-8");
+            for (int n = 0; n < bindings; n++)
+                context.append('\0').append(prefixes[n]).append('\0').append(uris[n]);
+            String key = context.toString();
+            byte[] bytes = entry.getSerialized(key);
+            if (bytes == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                Output output = new Output(out, new byte[BUFFER_SIZE], this);
+                output.serialize(entry);
+                output.flush();
+                bytes = out.toByteArray();
+                entry.setSerialized(key, bytes);
+            }
+            write(bytes);
+        }
+
+        private void serialize(OMElement element) throws IOException {
+            int mark = bindings;
+            OMNamespace ns = element.getNamespace();
+            String prefix = ns != null ? ns.getPrefix() : "";
+            write((byte)'<');
+            qname(prefix, element.getLocalName());
+            bind(prefix, ns != null ? ns.getNamespaceURI() : "");
+            for (Iterator<?> i = element.getAllDeclaredNamespaces(); i.hasNext();) {
+                OMNamespace decl = (OMNamespace)i.next();
+                bind(decl.getPrefix(), decl.getNamespaceURI());
+            }
+            for (Iterator<?> i = element.getAllAttributes(); i.hasNext();) {
+                OMAttribute attr = (OMAttribute)i.next();
+                OMNamespace ans = attr.getNamespace();
+                if (ans != null && ans.getNamespaceURI().length() > 0)
+                    bind(ans.getPrefix(), ans.getNamespaceURI());
+            }
+            for (Iterator<?> i = element.getAllAttributes(); i.hasNext();) {
+                OMAttribute attr = (OMAttribute)i.next();
+                OMNamespace ans = attr.getNamespace();
+                write((byte)' ');
+                qname(ans != null && ans.getNamespaceURI().length() > 0 ? ans.getPrefix() : "", attr.getLocalName());
+                write((byte)'=');
+                write((byte)'"');
+                escape(attr.getAttributeValue(), ATTRIBUTE_ESCAPES);
+                write((byte)'"');
+            }
+            if (element.getFirstOMChild() == null) {
+                write((byte)'/');
+                write((byte)'>');
+            } else {
+                write((byte)'>');
+                children(element);
+                write((byte)'<');
+                write((byte)'/');
+                qname(prefix, element.getLocalName());
+                write((byte)'>');
+            }
+            bindings = mark;
+        }
+
+        private void children(OMContainer container) throws IOException {
+            for (OMNode node = container.getFirstOMChild(); node != null; node = node.getNextOMSibling()) {
+                switch (node.getType()) {
+                    case OMNode.ELEMENT_NODE:
+                        element((OMElement)node);
+                        break;
+                    case OMNode.TEXT_NODE:
+                    case OMNode.SPACE_NODE:
+                        escape(((OMText)node).getText(), TEXT_ESCAPES);
+                        break;
+                    case OMNode.CDATA_SECTION_NODE:
+                        cdata(((OMText)node).getText());
+                        break;
+                    case OMNode.COMMENT_NODE:
+                        write(COMMENT_START);
+                        raw(((OMComment)node).getValue());
+                        write(COMMENT_END);
+                        break;
+                    case OMNode.PI_NODE:
+                        OMProcessingInstruction pi = (OMProcessingInstruction)node;
+                        write((byte)'<');
+                        write((byte)'?');
+                        raw(pi.getTarget());
+                        String value = pi.getValue();
+                        if (value != null && value.length() > 0) {
+                            write((byte)' ');
+                            raw(value);
+                        }
+                        write((byte)'?');
+                        write((byte)'>');
+                        break;
+                    case OMNode.ENTITY_REFERENCE_NODE:
+                        write((byte)'&');
+                        raw(((OMEntityReference)node).getName());
+                        write((byte)';');
+                        break;
+                    case OMNode.DTD_NODE:
+                        doctype((OMDocType)node);
+                        break;
+                }
+            }
+        }
+
+        private void doctype(OMDocType doctype) throws IOException {
+            write(DOCTYPE_START);
+            raw(doctype.getRootName());
+            if (doctype.getPublicId() != null) {
+                raw(" PUBLIC \"");
+                raw(doctype.getPublicId());
+                raw("\" \"");
+                raw(doctype.getSystemId());
+                write((byte)'"');
+            } else if (doctype.getSystemId() != null) {
+                raw(" SYSTEM \"");
+                raw(doctype.getSystemId());
+                write((byte)'"');
+            }
+            if (doctype.getInternalSubset() != null) {
+                raw(" [");
+                raw(doctype.getInternalSubset());
+                write((byte)']');
+            }
+            write((byte)'>');
+        }
+
+        private void cdata(String text) throws IOException {
+            write(CDATA_START);
+            int start = 0;
+            int end;
+            while ((end = text.indexOf("]]>", start)) != -1) {
+                raw(text.substring(start, end + 2));
+                write(CDATA_END);
+                write(CDATA_START);
+                start = end + 2;
+            }
+            raw(start == 0 ? text : text.substring(start));
+            write(CDATA_END);
+        }
+
+        private void qname(String prefix, String localName) throws IOException {
+            if (prefix != null && prefix.length() > 0) {
+                write(name(prefix));
+                write((byte)':');
+            }
+            write(name(localName));
+        }
+
+        /**
+         * Makes sure the prefix is bound to the uri, writing a namespace declaration if it is not already in scope
+         */
+        private void bind(String prefix, String uri) throws IOException {
+            if (prefix == null || "xml".equals(prefix))
+                return;
+            if (uri == null)
+                uri = "";
+            if (uri.equals(lookup(prefix)))
+                return;
+            if (bindings == prefixes.length) {
+                String[] p = new String[bindings * 2];
+                String[] u = new String[bindings * 2];
+                System.arraycopy(prefixes, 0, p, 0, bindings);
+                System.arraycopy(uris, 0, u, 0, bindings);
+                prefixes = p;
+                uris = u;
+            }
+            prefixes[bindings] = prefix;
+            uris[bindings++] = uri;
+            write(declaration(prefix, uri));
+        }
+
+        private String lookup(String prefix) {
+            for (int n = bindings - 1; n >= 0; n--) {
+                if (prefixes[n].equals(prefix))
+                    return uris[n];
+            }
+            return prefix.length() == 0 ? "" : null;
+        }
+
+        void write(byte b) throws IOException {
+            if (pos == buf.length)
+                flush();
+            buf[pos++] = b;
+        }
+
+        void write(byte[] b) throws IOException {
+            if (b.length > buf.length - pos) {
+                flush();
+                if (b.length > buf.length) {
+                    out.write(b);
+                    return;
+                }
+            }
+            System.arraycopy(b, 0, buf, pos, b.length);
+            pos += b.length;
+        }
+
+        /**
+         * Writes the string encoded as UTF-8 without escaping
+         */
+        private void raw(String s) throws IOException {
+            escape(s, null);
+        }
+
+        /**
+         * Writes the string encoded as UTF-8, replacing the ASCII characters that have an entry in the escapes table.
+         * Unpaired surrogates are written as '?'
+         */
+        void escape(String s, byte[][] escapes) throws IOException {
+            int len = s.length();
+            for (int n = 0; n < len; n++) {
+                char c = s.charAt(n);
+                if (c < 0x80) {
+                    byte[] escape = escapes != null ? escapes[c] : null;
+                    if (escape != null) {
+                        write(escape);
+                    } else {
+                        if (pos == buf.length)
+                            flush();
+                        buf[pos++] = (byte)c;
+                    }
+                    continue;
+                }
+                if (buf.length - pos < 4)
+                    flush();
+                if (c < 0x800) {
+                    buf[pos++] = (byte)(0xC0 | (c >> 6));
+                    buf[pos++] = (byte)(0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && n + 1 < len && Character.isLowSurrogate(s.charAt(n + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++n));
+                    buf[pos++] = (byte)(0xF0 | (cp >> 18));
+                    buf[pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                    buf[pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                    buf[pos++] = (byte)(0x80 | (cp & 0x3F));
+                } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                    buf[pos++] = (byte)'?';
+                } else {
+                    buf[pos++] = (byte)(0xE0 | (c >> 12));
+                    buf[pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                    buf[pos++] = (byte)(0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            if (pos > 0) {
+                out.write(buf, 0, pos);
+                pos = 0;
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.abdera.test.parser;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -105,6 +106,34 @@ public class EncodingTest {
         doc.getRoot().toString();
     }
 
+    @Test
+    public void testXMLRestrictedCharStream() throws Exception {
+        Abdera abdera = new Abdera();
+        Parser parser = abdera.getParser();
+        ParserOptions options = parser.getDefaultParserOptions();
+        options.setFilterRestrictedCharacters(true);
+
+        String s = "<?xml version='1.0'?><entry xmlns='http://www.w3.org/2005/Atom'>"
+            + "<title>a\u0002b\uFFFEc\u00e9\uD834\uDD1E</title></entry>";
+        Document<Entry> doc = parser.parse(new ByteArrayInputStream(s.getBytes("UTF-8")), null, options);
+        assertEquals("abc\u00e9\uD834\uDD1E", doc.getRoot().getTitle());
+
+        s = "<?xml version='1.1'?><entry xmlns='http://www.w3.org/2005/Atom'><title>a\u0085b\u007fc</title></entry>";
+        doc = parser.parse(new ByteArrayInputStream(s.getBytes("UTF-8")), null, options);
+        assertEquals("abc", doc.getRoot().getTitle());
+
+        options.setFilterRestrictedCharacterReplacement('_');
+        s = "\uFEFF<?xml version='1.0' encoding='UTF-16'?><entry xmlns='http://www.w3.org/2005/Atom'>"
+            + "<title>a\u0002b\uFFFFc\u00e9\uD834\uDD1E</title></entry>";
+        doc = parser.parse(new ByteArrayInputStream(s.getBytes("UTF-16LE")), null, options);
+        assertEquals("a_b_c\u00e9\uD834\uDD1E", doc.getRoot().getTitle());
+
+        s = "<?xml version='1.0' encoding='ISO-8859-1'?><entry xmlns='http://www.w3.org/2005/Atom'>"
+            + "<title>a\u0002b\u00e9</title></entry>";
+        doc = parser.parse(new ByteArrayInputStream(s.getBytes("ISO-8859-1")), null, options);
+        assertEquals("a_b\u00e9", doc.getRoot().getTitle());
+    }
+
     /**
      * Passes if the test does not throw any exceptions
      */
@@ -132,4 +161,25 @@ public class EncodingTest {
 
         doc.getRoot().toString();
     }
+
+    @Test
+    public void testDetectedCharsetDoesNotLeak() throws Exception {
+        Abdera abdera = new Abdera();
+        Parser parser = abdera.getParser();
+        ParserOptions options = parser.getDefaultParserOptions();
+
+        String s = "<?xml version='1.0' encoding='ISO-8859-1'?><entry xmlns='http://www.w3.org/2005/Atom'>"
+            + "<title>caf\u00e9</title></entry>";
+        Document<Entry> doc = parser.parse(new ByteArrayInputStream(s.getBytes("ISO-8859-1")), null, options);
+        assertEquals("caf\u00e9", doc.getRoot().getTitle());
+        assertEquals("ISO-8859-1", doc.getCharset());
+        assertNull(options.getCharset());
+
+        s = "<?xml version=\"1.0\" encoding = \"UTF-16\" ?><entry xmlns='http://www.w3.org/2005/Atom'>"
+            + "<title>caf\u00e9</title></entry>";
+        doc = parser.parse(new ByteArrayInputStream(s.getBytes("UTF-16")), null, options);
+        assertEquals("caf\u00e9", doc.getRoot().getTitle());
+        assertEquals("UTF-16", doc.getCharset());
+        assertNull(options.getCharset());
+    }
 }
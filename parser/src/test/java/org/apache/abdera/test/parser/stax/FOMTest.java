@@ -18,17 +18,30 @@
 package org.apache.abdera.test.parser.stax;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.activation.DataHandler;
 import javax.activation.MimeType;
@@ -65,6 +78,9 @@ import org.apache.abdera.model.Workspace;
 import org.apache.abdera.parser.Parser;
 import org.apache.abdera.parser.ParserFactory;
 import org.apache.abdera.parser.ParserOptions;
+import org.apache.abdera.parser.stax.FOMEntry;
+import org.apache.abdera.parser.stax.FOMReadOnlyException;
+import org.apache.abdera.parser.stax.FOMXPath;
 import org.apache.abdera.util.AbderaSource;
 import org.apache.abdera.util.Constants;
 import org.apache.abdera.util.Version;
@@ -72,8 +88,13 @@ import org.apache.abdera.util.filter.BlackListParseFilter;
 import org.apache.abdera.util.filter.WhiteListParseFilter;
 import org.apache.abdera.writer.Writer;
 import org.apache.abdera.writer.WriterFactory;
+import org.apache.abdera.writer.WriterOptions;
+import org.apache.abdera.xpath.CompiledXPath;
 import org.apache.abdera.xpath.XPath;
 import org.apache.axiom.attachments.ByteArrayDataSource;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMNode;
+import org.jaxen.Function;
 import org.junit.Test;
 
 public class FOMTest {
@@ -258,6 +279,183 @@ public class FOMTest {
 
     }
 
+    @Test
+    public void testCompiledXPath() throws Exception {
+        InputStream in = FOMTest.class.getResourceAsStream("/simple.xml");
+        Document<Feed> doc = getParser().parse(in);
+        Feed feed = doc.getRoot();
+        FOMXPath xpath = new FOMXPath(abdera);
+        CompiledXPath compiled = xpath.compile("/a:feed/a:entry/a:title");
+        assertEquals("/a:feed/a:entry/a:title", compiled.getPath());
+        assertEquals("Atom-Powered Robots Run Amok", compiled.valueOf(feed));
+        assertEquals(1, compiled.selectNodes(feed).size());
+        assertTrue(compiled.booleanValueOf(feed));
+        assertEquals(1.0d, xpath.compile("count(/a:feed)").numericValueOf(feed));
+        assertEquals(2, xpath.getCacheMisses());
+        assertEquals(0, xpath.getCacheHits());
+
+        assertEquals("Atom-Powered Robots Run Amok", xpath.valueOf("/a:feed/a:entry/a:title", feed));
+        assertEquals(1.0d, xpath.evaluate("count(/a:feed)", feed));
+        assertEquals(2, xpath.getCacheMisses());
+        assertEquals(2, xpath.getCacheHits());
+
+        // different namespace bindings compile a separate expression
+        Map<String, String> ns = new HashMap<String, String>();
+        ns.put("atom", Constants.ATOM_NS);
+        assertEquals(1, xpath.selectNodes("/atom:feed/atom:entry", feed, ns).size());
+        assertEquals(3, xpath.getCacheMisses());
+        ns.put("x", "urn:x");
+        assertEquals(1, xpath.selectNodes("/atom:feed/atom:entry", feed, ns).size());
+        assertEquals(4, xpath.getCacheMisses());
+
+        xpath.clearCache();
+        xpath.valueOf("/a:feed/a:entry/a:title", feed);
+        assertEquals(5, xpath.getCacheMisses());
+
+        // variable values are bound on each evaluation, so they share one compiled expression
+        String path = "count(/a:feed/a:entry[a:id = $id])";
+        Map<QName, Object> variables = new HashMap<QName, Object>();
+        variables.put(new QName("id"), "urn:uuid:1225c695-cfb8-4ebb-aaaa-80da344efa6a");
+        Map<QName, Function> functions = xpath.getDefaultFunctions();
+        Map<String, String> namespaces = xpath.getDefaultNamespaces();
+        assertEquals(1.0d, xpath.evaluate(path, feed, namespaces, functions, variables));
+        variables.put(new QName("id"), "urn:none");
+        assertEquals(0.0d, xpath.evaluate(path, feed, namespaces, functions, variables));
+        assertEquals(6, xpath.getCacheMisses());
+        CompiledXPath bound = xpath.compile(path, namespaces, functions, variables);
+        assertEquals(4, xpath.getCacheHits());
+        variables.put(new QName("id"), "urn:uuid:1225c695-cfb8-4ebb-aaaa-80da344efa6a");
+        assertEquals(0.0d, bound.evaluate(feed));
+    }
+
+    @Test
+    public void testUtf8Writer() throws Exception {
+        Writer writer = getWriterFactory().getWriter("utf8");
+        assertNotNull(writer);
+        String text = "a & b < c > d \"\u00e9\u20ac\ud834\udd1e\"\r\n";
+        Feed feed = getFactory().newFeed();
+        feed.setId("urn:feed");
+        feed.setTitle(text);
+        feed.declareNS("urn:x", "x");
+        Entry entry = feed.addEntry();
+        entry.setId("urn:1");
+        entry.setContentAsXhtml("<p>one &amp; <b>two</b></p>");
+        Link link = entry.addLink("http://example.org/?a=1&b=2", "edit");
+        link.setAttributeValue(new QName("urn:x", "type", "x"), "\t" + text);
+        entry.addSimpleExtension(new QName("urn:y", "foo", "y"), "bar");
+        entry.addSimpleExtension(new QName("", "plain"), "value");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        feed.getDocument().writeTo(writer, out);
+        String xml = out.toString("UTF-8");
+        assertTrue(xml.startsWith("<?xml version='1.0' encoding='UTF-8'?>"));
+        assertEquals(xml, writer.write(feed.getDocument()));
+        Document<Feed> doc = getParser().parse(new ByteArrayInputStream(out.toByteArray()));
+        Feed parsed = doc.getRoot();
+        assertEquals(text, parsed.getTitle());
+        Entry pentry = parsed.getEntry("urn:1");
+        assertEquals("\t" + text, pentry.getEditLink().getAttributeValue(new QName("urn:x", "type")));
+        assertEquals("http://example.org/?a=1&b=2", pentry.getEditLink().getHref().toString());
+        assertEquals("bar", pentry.getSimpleExtension(new QName("urn:y", "foo")));
+        assertEquals("value", pentry.getSimpleExtension(new QName("", "plain")));
+        assertEquals(entry.getContent(), pentry.getContent());
+
+        // a subtree carries the namespace bindings it inherits
+        out = new ByteArrayOutputStream();
+        entry.writeTo(writer, out);
+        Entry copy = getParser().<Entry> parse(new ByteArrayInputStream(out.toByteArray())).getRoot();
+        assertEquals("urn:1", copy.getId().toString());
+        assertEquals("\t" + text, copy.getEditLink().getAttributeValue(new QName("urn:x", "type")));
+        assertEquals("bar", copy.getSimpleExtension(new QName("urn:y", "foo")));
+
+        // other charsets use the default serializer
+        WriterOptions options = writer.getDefaultWriterOptions();
+        options.setCharset("ISO-8859-1");
+        out = new ByteArrayOutputStream();
+        entry.writeTo(writer, out, options);
+        copy = getParser().<Entry> parse(new ByteArrayInputStream(out.toByteArray())).getRoot();
+        assertEquals("urn:1", copy.getId().toString());
+    }
+
+    @Test
+    public void testSerializationCache() throws Exception {
+        Writer writer = getWriterFactory().getWriter("utf8");
+        Feed feed = getFactory().newFeed();
+        feed.setId("urn:feed");
+        Entry one = feed.addEntry();
+        one.setId("urn:1");
+        one.setTitle("one");
+        Entry two = feed.addEntry();
+        two.setId("urn:2");
+        two.addLink("http://example.org/2", "edit");
+        String expected = writer.write(feed.getDocument()).toString();
+
+        assertFalse(one.isSerializationCached());
+        one.setSerializationCached(true);
+        two.setSerializationCached(true);
+        assertTrue(one.isSerializationCached());
+        assertEquals(expected, writer.write(feed.getDocument()));
+        String key = "UTF-8\0\0" + Constants.ATOM_NS;
+        byte[] cached = ((FOMEntry)one).getSerialized(key);
+        assertNotNull(cached);
+        assertEquals(expected, writer.write(feed.getDocument()));
+        assertSame(cached, ((FOMEntry)one).getSerialized(key));
+
+        // any change to the entry's subtree discards the cached form
+        one.getTitleElement().setText("uno");
+        assertNull(((FOMEntry)one).getSerialized(key));
+        two.getEditLink().setAttributeValue("title", "edit");
+        assertTrue(writer.write(feed.getDocument()).toString().contains("<title type=\"text\">uno</title>"));
+        assertTrue(writer.write(feed.getDocument()).toString().contains(" title=\"edit\""));
+
+        // the cache is keyed by namespace context
+        String entry = writer.write(two).toString();
+        assertTrue(entry.startsWith("<entry xmlns=\"" + Constants.ATOM_NS + "\""));
+        assertEquals(two.getId(), getParser().<Entry> parse(new StringReader(entry)).getRoot().getId());
+
+        // frozen documents can still use the cache
+        expected = writer.write(feed.getDocument()).toString();
+        feed.getDocument().freeze();
+        assertEquals(expected, writer.write(feed.getDocument()));
+        assertNotNull(((FOMEntry)two).getSerialized(key));
+
+        two.setSerializationCached(false);
+        assertNull(((FOMEntry)two).getSerialized(key));
+        assertEquals(expected, writer.write(feed.getDocument()));
+        assertNull(((FOMEntry)two).getSerialized(key));
+    }
+
+    @Test
+    public void testSerializationCacheAxiomChanges() throws Exception {
+        Writer writer = getWriterFactory().getWriter("utf8");
+        Feed feed = getFactory().newFeed();
+        Entry entry = feed.addEntry();
+        entry.setId("urn:1");
+        entry.setTitle("one");
+        entry.addLink("http://example.org/1", "edit");
+        entry.setSerializationCached(true);
+        String key = "UTF-8\0\0" + Constants.ATOM_NS;
+
+        // changes made through the Axiom API are not detected, so the cached form has to be discarded explicitly
+        writer.write(feed.getDocument());
+        assertNotNull(((FOMEntry)entry).getSerialized(key));
+        Text summary = getFactory().newSummary();
+        summary.setValue("summary");
+        ((OMNode)entry.getTitleElement()).insertSiblingAfter((OMNode)summary);
+        entry.setSerializationCached(false).setSerializationCached(true);
+        assertTrue(writer.write(feed.getDocument()).toString().contains("<summary type=\"text\">summary</summary>"));
+
+        assertNotNull(((FOMEntry)entry).getSerialized(key));
+        ((OMElement)entry.getEditLink()).getAttribute(new QName("href")).setAttributeValue("http://example.org/2");
+        entry.setSerializationCached(false).setSerializationCached(true);
+        assertTrue(writer.write(feed.getDocument()).toString().contains("href=\"http://example.org/2\""));
+
+        assertNotNull(((FOMEntry)entry).getSerialized(key));
+        ((OMElement)entry.getTitleElement()).getFirstOMChild().detach();
+        entry.setSerializationCached(false).setSerializationCached(true);
+        assertTrue(writer.write(feed.getDocument()).toString().contains("<title type=\"text\"/>"));
+    }
+
     @Test
     public void testUriNormalization() throws Exception {
         String s1 = "HTTP://www.Example.ORG:80/./foo/%2d/../%2d/./foo";
@@ -796,4 +994,418 @@ public class FOMTest {
 
         assertEquals("tóst", entry.getContent());
     }
+
+    @Test
+    public void testFreeze() throws Exception {
+        StringBuilder buf = new StringBuilder("<feed xmlns='http://www.w3.org/2005/Atom' xml:base='http://example.org/'>");
+        buf.append("<id>urn:feed</id><title>Feed</title>");
+        for (int n = 0; n < 50; n++) {
+            buf.append("<entry><id>urn:" + n + "</id><title>Entry " + n + "</title>");
+            buf.append("<link href='" + n + "'/><updated>2007-01-01T00:00:00Z</updated></entry>");
+        }
+        buf.append("</feed>");
+        final Document<Feed> doc = getParser().parse(new ByteArrayInputStream(buf.toString().getBytes("UTF-8")));
+        assertFalse(doc.isFrozen());
+        assertTrue(doc.freeze().isFrozen());
+        final String expected = doc.toString();
+
+        final Feed feed = doc.getRoot();
+        final Entry entry = feed.getEntries().get(3);
+        Runnable[] changes =
+            {new Runnable() {
+                public void run() {
+                    feed.setTitle("Changed");
+                }
+            }, new Runnable() {
+                public void run() {
+                    feed.addEntry(getFactory().newEntry());
+                }
+            }, new Runnable() {
+                public void run() {
+                    entry.setAttributeValue("foo", "bar");
+                }
+            }, new Runnable() {
+                public void run() {
+                    entry.getLinks().get(0).setHref("foo");
+                }
+            }, new Runnable() {
+                public void run() {
+                    entry.discard();
+                }
+            }, new Runnable() {
+                public void run() {
+                    entry.getTitleElement().setText("Changed");
+                }
+            }, new Runnable() {
+                public void run() {
+                    feed.addComment("comment");
+                }
+            }, new Runnable() {
+                public void run() {
+                    doc.setBaseUri("http://example.com/");
+                }
+            }, new Runnable() {
+                public void run() {
+                    doc.addStylesheet("style.css", null);
+                }
+            }};
+        for (Runnable change : changes) {
+            try {
+                change.run();
+                fail("Frozen document was modified");
+            } catch (FOMReadOnlyException e) {
+            }
+        }
+        assertEquals(expected, doc.toString());
+
+        Entry copy = (Entry)entry.clone();
+        copy.setTitle("Changed");
+        assertEquals("Changed", copy.getTitle());
+        assertEquals("Entry 3", entry.getTitle());
+        assertEquals(expected, doc.toString());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int n = 0; n < 8; n++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        int count = 0;
+                        for (Entry e : feed.getEntries()) {
+                            IRI href = e.getLinks().get(0).getResolvedHref();
+                            if (href.toString().equals("http://example.org/" + count) && e.getUpdated() != null)
+                                count++;
+                        }
+                        return count == 50 && expected.equals(doc.toString());
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results)
+                assertTrue(result.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testIndexedChildLookup() throws Exception {
+        StringBuilder buf = new StringBuilder("<entry xmlns='http://www.w3.org/2005/Atom' xmlns:x='urn:x'>");
+        buf.append("<id>urn:entry</id><title>Title</title><updated>2007-01-01T00:00:00Z</updated>");
+        for (int n = 0; n < 20; n++)
+            buf.append("<x:ext>" + n + "</x:ext>");
+        buf.append("<link href='a'/><link rel='edit' href='b'/><content>Content</content></entry>");
+        Document<Entry> doc = getParser().parse(new ByteArrayInputStream(buf.toString().getBytes("UTF-8")));
+        Entry entry = doc.getRoot();
+        entry.complete();
+        QName ext = new QName("urn:x", "ext");
+        assertEquals("Title", entry.getTitle());
+        assertEquals("urn:entry", entry.getId().toString());
+        assertEquals("Content", entry.getContent());
+        assertEquals(20, entry.getExtensions(ext).size());
+        assertEquals("0", entry.getSimpleExtension(ext));
+        assertEquals(2, entry.getLinks().size());
+
+        entry.setTitle("Changed");
+        assertEquals("Changed", entry.getTitle());
+        entry.getExtension(ext).discard();
+        assertEquals("1", entry.getSimpleExtension(ext));
+        assertEquals(19, entry.getExtensions(ext).size());
+        entry.addExtension(ext, Constants.ID).setText("first");
+        assertEquals("first", entry.getSimpleExtension(ext));
+        entry.setContentElement(null);
+        assertNull(entry.getContentElement());
+        entry.setSummary("Summary");
+        assertEquals("Summary", entry.getSummary());
+
+        Entry other = getFactory().newEntry();
+        other.addLink(entry.getLinks().get(0));
+        assertEquals(1, entry.getLinks().size());
+        assertEquals(1, other.getLinks().size());
+        assertEquals("edit", entry.getLinks().get(0).getRel());
+    }
+
+    @Test
+    public void testIndexedChildLookupAfterAxiomInsert() throws Exception {
+        StringBuilder buf = new StringBuilder("<entry xmlns='http://www.w3.org/2005/Atom' xmlns:x='urn:x'>");
+        buf.append("<id>urn:entry</id><title>Title</title><updated>2007-01-01T00:00:00Z</updated>");
+        for (int n = 0; n < 10; n++)
+            buf.append("<x:ext>" + n + "</x:ext>");
+        buf.append("<content>Content</content></entry>");
+        Document<Entry> doc = getParser().parse(new ByteArrayInputStream(buf.toString().getBytes("UTF-8")));
+        Entry entry = doc.getRoot();
+        entry.complete();
+        assertNull(entry.getRightsElement());
+        assertNull(entry.getSummaryElement());
+        assertEquals("Content", entry.getContent());
+
+        // the Axiom lookup always scans; the FOM getters see children inserted through Axiom once the children are
+        // next changed through FOM
+        ((OMNode)entry.getTitleElement()).insertSiblingAfter((OMNode)getFactory().newRights());
+        ((OMNode)entry.getUpdatedElement()).insertSiblingBefore((OMNode)getFactory().newSummary());
+        assertNotNull(((OMElement)entry).getFirstChildWithName(Constants.RIGHTS));
+        assertNotNull(((OMElement)entry).getFirstChildWithName(Constants.SUMMARY));
+        entry.setTitle("Changed");
+        assertNotNull(entry.getRightsElement());
+        assertNotNull(entry.getSummaryElement());
+
+        // an indexed child moved away through Axiom is not returned
+
+        Entry other = getFactory().newEntry();
+        other.setId("urn:other");
+        ((OMNode)other.getIdElement()).insertSiblingAfter((OMNode)entry.getContentElement());
+        assertNull(entry.getContentElement());
+        assertEquals("Content", other.getContent());
+    }
+
+    @Test
+    public void testIndexedLinkLookup() throws Exception {
+        String xml =
+            "<entry xmlns='http://www.w3.org/2005/Atom'><link href='a'/><link rel='ALTERNATE' href='b'/>"
+                + "<link rel='http://www.iana.org/assignments/relation/edit' href='c'/><link rel='self' href='d'/>"
+                + "<source><link rel='self' href='e'/><link href='f'/></source></entry>";
+        Document<Entry> doc = getParser().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        Entry entry = doc.getRoot();
+        entry.complete();
+        assertEquals(2, entry.getLinks(Link.REL_ALTERNATE).size());
+        assertEquals("a", entry.getAlternateLink().getHref().toString());
+        assertEquals("c", entry.getEditLink().getHref().toString());
+        assertEquals("d", entry.getSelfLink().getHref().toString());
+        assertEquals(4, entry.getLinks(Link.REL_EDIT, Link.REL_SELF, Link.REL_RELATED, Link.REL_ALTERNATE).size());
+        assertNull(entry.getLink(Link.REL_RELATED));
+        assertEquals("e", entry.getSource().getSelfLink().getHref().toString());
+        assertEquals("f", entry.getSource().getAlternateLink().getHref().toString());
+
+        entry.getSelfLink().setRel(Link.REL_RELATED);
+        assertNull(entry.getSelfLink());
+        assertEquals("d", entry.getLink(Link.REL_RELATED).getHref().toString());
+        entry.getAlternateLink().discard();
+        assertEquals("b", entry.getAlternateLink().getHref().toString());
+        entry.addLink("g", Link.REL_SELF);
+        assertEquals("g", entry.getSelfLink().getHref().toString());
+        entry.getSource().getSelfLink().removeAttribute(Constants.REL);
+        assertEquals(2, entry.getSource().getLinks(Link.REL_ALTERNATE).size());
+        assertNull(entry.getSource().getSelfLink());
+    }
+
+    @Test
+    public void testIndexedLinkLookupAfterAxiomChanges() throws Exception {
+        String xml =
+            "<entry xmlns='http://www.w3.org/2005/Atom'><link href='a'/><link rel='edit' href='b'/>"
+                + "<link rel='self' href='c'/><source><link rel='self' href='d'/></source></entry>";
+        Document<Entry> doc = getParser().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        Entry entry = doc.getRoot();
+        entry.complete();
+        assertEquals("b", entry.getEditLink().getHref().toString());
+        assertEquals("d", entry.getSource().getSelfLink().getHref().toString());
+
+        // a rel changed through the Axiom API is detected
+        ((OMElement)entry.getEditLink()).getAttribute(Constants.REL).setAttributeValue("related");
+        assertNull(entry.getEditLink());
+        assertEquals("b", entry.getLink(Link.REL_RELATED).getHref().toString());
+
+        // so is a link moved to another element through the Axiom API
+        Source source = entry.getSource();
+        ((OMNode)source.getSelfLink()).insertSiblingAfter((OMNode)entry.getSelfLink());
+        assertNull(entry.getSelfLink());
+        assertEquals("d", source.getSelfLink().getHref().toString());
+    }
+
+    @Test
+    public void testResolvedBaseAndLanguage() throws Exception {
+        String xml =
+            "<feed xmlns='http://www.w3.org/2005/Atom' xml:base='feed/' xml:lang='en'>"
+                + "<entry xml:base='entry/'><link href='a'/><title xml:lang='fr'>Title</title></entry></feed>";
+        Document<Feed> doc =
+            getParser().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")), "http://example.org/");
+        Feed feed = doc.getRoot();
+        Entry entry = feed.getEntries().get(0);
+        Link link = entry.getLinks().get(0);
+        assertEquals("http://example.org/feed/entry/a", link.getResolvedHref().toString());
+        assertEquals("http://example.org/feed/entry/a", link.getResolvedHref().toString());
+        assertEquals("en", link.getLanguage());
+        assertEquals("fr", entry.getTitleElement().getLanguage());
+
+        feed.setBaseUri("other/");
+        assertEquals("http://example.org/other/entry/a", link.getResolvedHref().toString());
+        doc.setBaseUri("http://example.com/");
+        assertEquals("http://example.com/other/entry/a", link.getResolvedHref().toString());
+        entry.setBaseUri((String)null);
+        assertEquals("http://example.com/other/a", link.getResolvedHref().toString());
+
+        feed.setLanguage("de");
+        assertEquals("de", link.getLanguage());
+        entry.setLanguage("it");
+        assertEquals("it", link.getLanguage());
+        assertEquals("fr", entry.getTitleElement().getLanguage());
+
+        Feed other = getFactory().newFeed();
+        other.setBaseUri("http://example.net/");
+        other.addEntry(entry);
+        assertEquals("http://example.net/a", link.getResolvedHref().toString());
+        assertEquals("it", link.getLanguage());
+        entry.setLanguage(null);
+        assertNull(link.getLanguage());
+    }
+
+    @Test
+    public void testSortEntries() throws Exception {
+        String xml =
+            "<feed xmlns='http://www.w3.org/2005/Atom' xmlns:app='http://www.w3.org/2007/app' xmlns:x='urn:x'>"
+                + "<id>urn:feed</id>\n"
+                + "<entry><id>urn:1</id><updated>2007-01-02T00:00:00Z</updated></entry>\n"
+                + "<entry><id>urn:2</id></entry>\n"
+                + "<entry><id>urn:3</id><updated>2007-01-03T00:00:00Z</updated>"
+                + "<app:edited>2007-01-01T00:00:00Z</app:edited></entry>\n"
+                + "<x:ext/>\n"
+                + "<entry><id>urn:4</id><updated>2007-01-02T00:00:00Z</updated></entry>\n"
+                + "<entry><id>urn:5</id><updated>2007-01-01T00:00:00Z</updated></entry>\n</feed>";
+        Feed feed = getParser().<Feed> parse(new ByteArrayInputStream(xml.getBytes("UTF-8"))).getRoot();
+
+        feed.sortEntriesByUpdated(true);
+        assertEquals("2,3,1,4,5", getEntryIds(feed));
+        feed.sortEntriesByUpdated(false);
+        assertEquals("2,5,1,4,3", getEntryIds(feed));
+        feed.sortEntriesByEdited(true);
+        assertEquals("2,1,4,5,3", getEntryIds(feed));
+        feed.sortEntries(new Comparator<Entry>() {
+            public int compare(Entry e1, Entry e2) {
+                return e1.getId().toString().compareTo(e2.getId().toString());
+            }
+        });
+        assertEquals("1,2,3,4,5", getEntryIds(feed));
+
+        List<String> names = new ArrayList<String>();
+        for (Element el : feed.getElements())
+            names.add(el.getQName().getLocalPart());
+        assertEquals("[id, entry, entry, entry, ext, entry, entry]", names.toString());
+        assertTrue(feed.toString().contains("</entry>\n<x:ext/>\n<entry>"));
+        assertEquals("urn:4", feed.getEntries().get(3).getId().toString());
+    }
+
+    @Test
+    public void testGetEntryIndex() throws Exception {
+        String xml =
+            "<feed xmlns='http://www.w3.org/2005/Atom'><id>urn:feed</id>"
+                + "<entry><id>urn:1</id></entry><entry><id>urn:2</id></entry>"
+                + "<entry><id>urn:1</id><title>dup</title></entry><entry/></feed>";
+        Feed feed = getParser().<Feed> parse(new ByteArrayInputStream(xml.getBytes("UTF-8"))).getRoot();
+        List<Entry> entries = feed.getEntries();
+        assertSame(entries.get(0), feed.getEntry("urn:1"));
+        assertSame(entries.get(1), feed.getEntry("urn:2"));
+        assertNull(feed.getEntry("urn:3"));
+        assertNull(feed.getEntry(null));
+
+        entries.get(0).discard();
+        assertSame(entries.get(2), feed.getEntry("urn:1"));
+
+        Entry added = feed.addEntry();
+        added.setId("urn:3");
+        assertSame(added, feed.getEntry("urn:3"));
+        Entry inserted = getFactory().newEntry();
+        inserted.setId("urn:2");
+        feed.insertEntry(inserted);
+        assertSame(inserted, feed.getEntry("urn:2"));
+        inserted.discard();
+        assertSame(entries.get(1), feed.getEntry("urn:2"));
+
+        entries.get(1).getIdElement().setValue("urn:4");
+        assertNull(feed.getEntry("urn:2"));
+        assertSame(entries.get(1), feed.getEntry("urn:4"));
+        entries.get(3).setId("urn:5");
+        assertSame(entries.get(3), feed.getEntry("urn:5"));
+        added.getIdElement().discard();
+        assertNull(feed.getEntry("urn:3"));
+    }
+
+    @Test
+    public void testGetEntryIndexAfterAxiomChanges() throws Exception {
+        String xml =
+            "<feed xmlns='http://www.w3.org/2005/Atom'><id>urn:feed</id>"
+                + "<entry><id>urn:a</id></entry><entry><id>urn:b</id></entry></feed>";
+        Feed feed = getParser().<Feed> parse(new ByteArrayInputStream(xml.getBytes("UTF-8"))).getRoot();
+        Entry entry = feed.getEntry("urn:a");
+        assertNotNull(entry);
+        ((OMElement)entry).setLocalName("notentry");
+        assertNull(feed.getEntry("urn:a"));
+
+        Feed other = getFactory().newFeed();
+        other.setId("urn:other");
+        ((OMNode)other.getIdElement()).insertSiblingAfter((OMNode)feed.getEntry("urn:b"));
+        assertNull(feed.getEntry("urn:b"));
+        assertEquals(0, feed.getEntries().size());
+    }
+
+    @Test
+    public void testAddEntries() throws Exception {
+        Feed feed = getFactory().newFeed();
+        feed.setId("urn:feed");
+        feed.addEntry().setId("urn:3");
+        List<Entry> entries = new ArrayList<Entry>();
+        for (int n = 4; n <= 5; n++) {
+            Entry entry = getFactory().newEntry();
+            entry.setId("urn:" + n);
+            entries.add(entry);
+        }
+        feed.addEntries(entries);
+        assertEquals("3,4,5", getEntryIds(feed));
+
+        entries.clear();
+        for (int n = 1; n <= 2; n++) {
+            Entry entry = getFactory().newEntry();
+            entry.setId("urn:" + n);
+            entries.add(entry);
+        }
+        feed.insertEntries(entries);
+        assertEquals("1,2,3,4,5", getEntryIds(feed));
+        assertSame(entries.get(1), feed.getEntry("urn:2"));
+
+        feed.setTitle("title");
+        List<String> names = new ArrayList<String>();
+        for (Element el : feed.getElements())
+            names.add(el.getQName().getLocalPart());
+        assertEquals("[id, title, entry, entry, entry, entry, entry]", names.toString());
+
+        feed.insertEntries(new ArrayList<Entry>(feed.getEntries().subList(0, 3)));
+        assertEquals("1,2,3,4,5", getEntryIds(feed));
+        Feed empty = getFactory().newFeed();
+        empty.insertEntries(entries);
+        assertEquals("1,2", getEntryIds(empty));
+        assertEquals("3,4,5", getEntryIds(feed));
+    }
+
+    @Test
+    public void testCloneEntry() throws Exception {
+        String xml =
+            "<entry xmlns='http://www.w3.org/2005/Atom' xmlns:x='urn:x' xml:lang='en'>"
+                + "<id>urn:1</id><title type='html'>&lt;b&gt;Title&lt;/b&gt;</title>"
+                + "<link href='/1' x:a='b'/><x:ext x:b='c'><x:child>text<!--c--></x:child></x:ext>"
+                + "<content type='application/xml'><x:data><x:item/></x:data></content></entry>";
+        Entry entry = getParser().<Entry> parse(new ByteArrayInputStream(xml.getBytes("UTF-8"))).getRoot();
+        Entry copy = (Entry)entry.clone();
+        assertEquals("en", copy.getLanguage());
+        assertEquals("urn:1", copy.getId().toString());
+        assertEquals(entry.getElements().size(), copy.getElements().size());
+        assertEquals("text", copy.getExtension(new QName("urn:x", "ext")).<Element> getFirstChild().getText());
+        assertEquals(Text.Type.HTML, copy.getTitleType());
+        assertEquals(Content.Type.XML, copy.getContentType());
+        assertEquals("b", copy.getLinks().get(0).getAttributeValue(new QName("urn:x", "a")));
+        assertNotNull(copy.getContentElement().getValueElement());
+
+        Feed feed = getFactory().newFeed();
+        feed.addEntry(copy);
+        copy.getExtension(new QName("urn:x", "ext")).setAttributeValue(new QName("urn:x", "b"), "d");
+        assertEquals("c", entry.getExtension(new QName("urn:x", "ext")).getAttributeValue(new QName("urn:x", "b")));
+        Document<Feed> doc = getParser().parse(new StringReader(feed.toString()));
+        assertEquals("urn:1", doc.getRoot().getEntries().get(0).getId().toString());
+    }
+
+    private static String getEntryIds(Feed feed) {
+        StringBuilder buf = new StringBuilder();
+        for (Entry entry : feed.getEntries()) {
+            if (buf.length() > 0)
+                buf.append(',');
+            buf.append(entry.getId().toString().substring(4));
+        }
+        return buf.toString();
+    }
 }
@@ -19,9 +19,14 @@ package org.apache.abdera.test.parser.stax;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -35,6 +40,7 @@ import org.apache.abdera.model.Feed;
 import org.apache.abdera.parser.Parser;
 import org.apache.abdera.parser.ParserOptions;
 import org.apache.abdera.util.filter.AbstractParseFilter;
+import org.apache.abdera.util.filter.PathProjection;
 import org.junit.Test;
 
 public class ParserOptionsTest {
@@ -108,4 +114,91 @@ public class ParserOptionsTest {
                 "/parseroptionstest.xml"), options);
         assertFalse(doc.getRoot().getEntries().get(0).getLinks().isEmpty());
     }
+
+    @Test
+    public void testProjection() {
+        Parser parser = abdera.getParser();
+        ParserOptions options = parser.getDefaultParserOptions();
+        options.setProjection(new PathProjection("feed/entry/id", "/feed/entry/updated"));
+        Document<Feed> doc = parser.parse(ParserOptionsTest.class.getResourceAsStream(
+                "/parseroptionstest.xml"), options);
+        Entry entry = doc.getRoot().getEntries().get(0);
+        assertEquals("urn:uuid:1225c695-cfb8-4ebb-aaaa-80da344efa6a", entry.getId().toString());
+        assertNotNull(entry.getUpdated());
+        assertNull(entry.getTitle());
+        assertNull(entry.getSummary());
+        assertEquals(2, entry.getElements().size());
+    }
+
+    @Test
+    public void testProjectionPredicates() {
+        String xml = "<feed xmlns='http://www.w3.org/2005/Atom' xmlns:x='urn:test'><title>t</title>"
+            + "<entry><id>urn:a</id><link href='a'/><link rel='edit' href='b'/><link rel='self' href='c'/>"
+            + "<x:ext><id>urn:nested</id></x:ext><content type='xhtml'><div xmlns='http://www.w3.org/1999/xhtml'>"
+            + "<p>skipped</p></div></content></entry></feed>";
+        Parser parser = abdera.getParser();
+        ParserOptions options = parser.getDefaultParserOptions();
+        options.setProjection(new PathProjection(Collections.singletonMap("x", "urn:test"), "feed/entry/link[@rel]",
+                "feed/entry/x:ext"));
+        Document<Feed> doc = parser.parse(new StringReader(xml), options);
+        Feed feed = doc.getRoot();
+        assertNull(feed.getTitle());
+        Entry entry = feed.getEntries().get(0);
+        assertNull(entry.getId());
+        assertNull(entry.getContentElement());
+        assertEquals(2, entry.getLinks().size());
+        assertNotNull(entry.getEditLink());
+        assertNull(entry.getAlternateLink());
+        assertNotNull(entry.getExtension(new QName("urn:test", "ext")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProjection() {
+        new PathProjection("feed/y:entry");
+    }
+
+    @Test
+    public void testMaxEntries() throws Exception {
+        StringBuilder buf = new StringBuilder();
+        buf.append("<feed xmlns='http://www.w3.org/2005/Atom'><id>urn:feed</id>");
+        buf.append("<updated>2010-01-01T00:00:00Z</updated><link href='http://example.org/'/>");
+        for (int n = 0; n < 10000; n++)
+            buf.append("<entry><id>urn:entry:" + n + "</id><title>entry</title></entry>");
+        buf.append("</feed>");
+        final byte[] bytes = buf.toString().getBytes("UTF-8");
+        final int[] read = new int[1];
+        final boolean[] closed = new boolean[1];
+        InputStream in = new ByteArrayInputStream(bytes) {
+            public synchronized int read(byte[] b, int off, int len) {
+                int r = super.read(b, off, len);
+                read[0] += Math.max(r, 0);
+                return r;
+            }
+
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        Parser parser = abdera.getParser();
+        ParserOptions options = parser.getDefaultParserOptions();
+        options.setMaxEntries(2);
+        Document<Feed> doc = parser.parse(in, options);
+        Feed feed = doc.getRoot();
+        assertEquals("urn:feed", feed.getId().toString());
+        assertNotNull(feed.getUpdated());
+        assertEquals("http://example.org/", feed.getAlternateLink().getHref().toString());
+        assertEquals(2, feed.getEntries().size());
+        assertEquals("urn:entry:1", feed.getEntries().get(1).getId().toString());
+        doc.complete();
+        assertTrue(closed[0]);
+        assertTrue(read[0] < bytes.length / 10);
+
+        options.setMaxEntries(0);
+        feed = parser.<Feed> parse(new ByteArrayInputStream(bytes), options).getRoot();
+        assertEquals("urn:feed", feed.getId().toString());
+        assertTrue(feed.getEntries().isEmpty());
+        assertEquals("<feed xmlns=\"http://www.w3.org/2005/Atom\"><id>urn:feed</id>"
+            + "<updated>2010-01-01T00:00:00Z</updated><link href=\"http://example.org/\"/></feed>", feed.toString());
+    }
 }
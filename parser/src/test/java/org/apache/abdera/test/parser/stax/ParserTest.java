@@ -18,18 +18,44 @@
 package org.apache.abdera.test.parser.stax;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.namespace.QName;
 
 import org.apache.abdera.Abdera;
 import org.apache.abdera.model.Document;
 import org.apache.abdera.model.Entry;
 import org.apache.abdera.model.Feed;
 import org.apache.abdera.model.Service;
+import org.apache.abdera.parser.AsyncParse;
+import org.apache.abdera.parser.AsyncParseListener;
+import org.apache.abdera.parser.EntryIterator;
+import org.apache.abdera.parser.ParseException;
 import org.apache.abdera.parser.Parser;
+import org.apache.abdera.parser.ParserOptions;
+import org.apache.abdera.util.Constants;
+import org.apache.abdera.util.filter.AbstractParseFilter;
 import org.junit.Test;
 
 public class ParserTest {
@@ -98,4 +124,275 @@ public class ParserTest {
 
     }
 
+    @Test
+    public void testParseEntries() throws Exception {
+
+        StringBuilder buf = new StringBuilder();
+        buf.append("<feed xmlns='http://www.w3.org/2005/Atom' xml:base='http://example.org/'>");
+        buf.append("<id>urn:feed</id><title>entries</title>");
+        for (int n = 0; n < 100; n++) {
+            buf.append("<entry><id>urn:entry:" + n + "</id><link href='" + n + "'/></entry>\n");
+        }
+        buf.append("</feed>");
+
+        EntryIterator i = getParser().parseEntries(new ByteArrayInputStream(buf.toString().getBytes("UTF-8")));
+        Feed feed = i.getFeed();
+        assertEquals("entries", feed.getTitle());
+        int n = 0;
+        while (i.hasNext()) {
+            Entry entry = i.next();
+            assertEquals("urn:entry:" + n, entry.getId().toString());
+            assertEquals("http://example.org/" + n, entry.getAlternateLink().getResolvedHref().toString());
+            n++;
+        }
+        i.close();
+        assertEquals(100, n);
+        assertTrue(feed.getEntries().isEmpty());
+        assertEquals("urn:feed", feed.getId().toString());
+
+        i = getParser().parseEntries(ParserTest.class.getResourceAsStream("/simpleEntry.xml"));
+        assertNull(i.getFeed());
+        assertTrue(i.hasNext());
+        assertTrue(i.next() instanceof Entry);
+        assertFalse(i.hasNext());
+        i.close();
+
+    }
+
+    @Test
+    public void testParseParallel() throws Exception {
+
+        StringBuilder buf = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<!-- <entry> -->\n");
+        buf.append("<a:feed xmlns:a='http://www.w3.org/2005/Atom' xmlns:x='urn:x' xml:base='http://example.org/'");
+        buf.append(" xml:lang='en'><a:id>urn:feed</a:id><a:title>entries</a:title>\n");
+        for (int n = 0; n < 2000; n++) {
+            if (n % 2 == 0)
+                buf.append("<a:entry><a:id>urn:entry:" + n + "</a:id><a:link href='" + n + "'/>");
+            else
+                buf.append("<entry xmlns='http://www.w3.org/2005/Atom' xml:lang='fr'><id>urn:entry:" + n + "</id>");
+            buf.append("<x:y a='&gt;'><![CDATA[</a:entry>]]><!-- </entry> --></x:y>");
+            buf.append("<a:title type='text'>caf\u00e9 " + n + "</a:title>");
+            buf.append(n % 2 == 0 ? "</a:entry>\n" : "</entry>\n");
+            if (n == 1000)
+                buf.append("<x:entry>not an atom entry</x:entry>\n");
+        }
+        buf.append("</a:feed>");
+        byte[] bytes = buf.toString().getBytes("UTF-8");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Document<Feed> doc = getParser().parseParallel(new ByteArrayInputStream(bytes), null, null, executor);
+            Feed feed = doc.getRoot();
+            assertEquals("entries", feed.getTitle());
+            List<Entry> entries = feed.getEntries();
+            assertEquals(2000, entries.size());
+            for (int n = 0; n < 2000; n++) {
+                Entry entry = entries.get(n);
+                assertEquals("urn:entry:" + n, entry.getId().toString());
+                assertEquals("caf\u00e9 " + n, entry.getTitle());
+                assertEquals(n % 2 == 0 ? "en" : "fr", entry.getLanguage());
+                if (n % 2 == 0)
+                    assertEquals("http://example.org/" + n, entry.getAlternateLink().getResolvedHref().toString());
+            }
+            Document<Feed> expected = getParser().parse(new ByteArrayInputStream(bytes));
+            assertEquals(expected.getRoot().toString(), feed.toString());
+        } finally {
+            executor.shutdown();
+        }
+
+        Document<Entry> entryDoc =
+            getParser().parseParallel(ParserTest.class.getResourceAsStream("/simpleEntry.xml"), null, null, null);
+        assertTrue(entryDoc.getRoot() instanceof Entry);
+
+    }
+
+    @Test
+    public void testParseFileAndBuffer() throws Exception {
+
+        String s = "<?xml version='1.0' encoding='ISO-8859-1'?><entry xmlns='http://www.w3.org/2005/Atom'>"
+            + "<title>caf\u00e9</title></entry>";
+        byte[] bytes = s.getBytes("ISO-8859-1");
+
+        File file = File.createTempFile("abdera", ".xml");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(bytes);
+        out.close();
+        Document<Entry> doc = getParser().parse(file);
+        assertEquals("caf\u00e9", doc.getRoot().getTitle());
+        assertEquals("ISO-8859-1", doc.getCharset());
+
+        FileInputStream in = new FileInputStream(file);
+        doc = getParser().parse(in.getChannel());
+        in.close();
+        assertEquals("caf\u00e9", doc.getRoot().getTitle());
+
+        ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length + 4);
+        buf.put(new byte[] {1, 2, 3, 4}).put(bytes).flip().position(4);
+        doc = getParser().parse(buf);
+        assertEquals("caf\u00e9", doc.getRoot().getTitle());
+        assertEquals(4, buf.position());
+
+        // large enough to be memory mapped
+        StringBuilder feed = new StringBuilder("<feed xmlns='http://www.w3.org/2005/Atom'>");
+        for (int n = 0; n < 10000; n++)
+            feed.append("<entry><id>urn:entry:" + n + "</id><title>\u4e2d</title></entry>");
+        feed.append("</feed>");
+        out = new FileOutputStream(file);
+        out.write(feed.toString().getBytes("UTF-8"));
+        out.close();
+        assertTrue(file.length() > 256 * 1024);
+        Document<Feed> feedDoc = getParser().parse(file);
+        assertEquals(10000, feedDoc.getRoot().getEntries().size());
+        assertEquals("\u4e2d", feedDoc.getRoot().getEntries().get(9999).getTitle());
+
+    }
+
+    @Test
+    public void testParseAsync() throws Exception {
+
+        StringBuilder buf = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>");
+        buf.append("<feed xmlns='http://www.w3.org/2005/Atom' xml:base='http://example.org/'>");
+        buf.append("<id>urn:feed</id><title>entries</title>");
+        for (int n = 0; n < 500; n++) {
+            buf.append("<entry><id>urn:entry:" + n + "</id><link href='" + n + "'/><title>caf\u00e9</title></entry>\n");
+        }
+        buf.append("</feed>");
+        byte[] bytes = buf.toString().getBytes("UTF-8");
+
+        final List<String> hrefs = new ArrayList<String>();
+        final List<Document<Feed>> completed = new ArrayList<Document<Feed>>();
+        AsyncParseListener<Feed> listener = new AsyncParseListener<Feed>() {
+            public void onEntry(Entry entry) {
+                hrefs.add(entry.getAlternateLink().getResolvedHref().toString());
+            }
+
+            public void onComplete(Document<Feed> document) {
+                completed.add(document);
+            }
+
+            public void onError(ParseException e) {
+            }
+        };
+        AsyncParse<Feed> parse = getParser().parseAsync(null, null, listener);
+        for (int off = 0; off < bytes.length; off += 7)
+            parse.write(ByteBuffer.wrap(bytes, off, Math.min(7, bytes.length - off)));
+        // all entries are complete before the end of the feed arrives
+        assertEquals(500, hrefs.size());
+        assertFalse(parse.isDone());
+        parse.end();
+        assertTrue(parse.isDone());
+
+        Document<Feed> doc = parse.get();
+        assertEquals(doc, completed.get(0));
+        assertEquals("http://example.org/499", hrefs.get(499));
+        List<Entry> entries = doc.getRoot().getEntries();
+        assertEquals(500, entries.size());
+        assertEquals("urn:entry:42", entries.get(42).getId().toString());
+        assertEquals("caf\u00e9", entries.get(42).getTitle());
+        assertEquals("http://example.org/42", entries.get(42).getAlternateLink().getResolvedHref().toString());
+        assertEquals(getParser().parse(new ByteArrayInputStream(bytes)).getRoot().toString(), doc.getRoot().toString());
+
+        AsyncParse<Entry> entryParse = getParser().parseAsync(null, null, null);
+        bytes = "<entry xmlns='http://www.w3.org/2005/Atom'><id>urn:entry</id></entry>".getBytes("UTF-8");
+        entryParse.write(bytes, 0, bytes.length);
+        entryParse.end();
+        assertEquals("urn:entry", entryParse.get().getRoot().getId().toString());
+
+        AsyncParse<Feed> broken = getParser().parseAsync(null, null, null);
+        bytes = "<feed xmlns='http://www.w3.org/2005/Atom'><entry><id></feed>".getBytes("UTF-8");
+        broken.write(bytes, 0, bytes.length);
+        broken.end();
+        try {
+            broken.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ParseException);
+        }
+
+    }
+
+    @Test
+    public void testParseAsyncFallback() throws Exception {
+        byte[] bytes =
+            ("<feed xmlns='http://www.w3.org/2005/Atom'><id>urn:feed</id><title>a feed whose entries are "
+                + "written in one go, long enough for the parse to look at them before the end arrives</title>"
+                + "<entry><id>urn:0</id></entry><entry><id>urn:1</id></entry><entry><id>urn:2</id></entry></feed>")
+                .getBytes("UTF-8");
+        // drops the second entry element it sees, so the entries parsed early no longer match the skeleton
+        final AtomicInteger seen = new AtomicInteger();
+        ParserOptions options = getParser().getDefaultParserOptions();
+        options.setParseFilter(new AbstractParseFilter() {
+            private static final long serialVersionUID = 1L;
+
+            public boolean acceptable(QName qname) {
+                return !qname.equals(Constants.ENTRY) || seen.getAndIncrement() != 1;
+            }
+
+            public boolean acceptable(QName qname, QName attribute) {
+                return true;
+            }
+        });
+        final List<String> ids = new ArrayList<String>();
+        final List<Document<Feed>> fromListener = new ArrayList<Document<Feed>>();
+        final AtomicReference<AsyncParse<Feed>> holder = new AtomicReference<AsyncParse<Feed>>();
+        AsyncParseListener<Feed> listener = new AsyncParseListener<Feed>() {
+            public void onEntry(Entry entry) {
+                ids.add(entry.getId().toString());
+                if (holder.get().isDone()) {
+                    try {
+                        fromListener.add(holder.get().get(5, TimeUnit.SECONDS));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+
+            public void onComplete(Document<Feed> document) {
+            }
+
+            public void onError(ParseException e) {
+            }
+        };
+        AsyncParse<Feed> parse = getParser().parseAsync(null, options, listener);
+        holder.set(parse);
+        parse.write(bytes, 0, bytes.length);
+        assertEquals(2, ids.size());
+        parse.end();
+        Document<Feed> doc = parse.get();
+        // every entry of the reparsed document is reported again, after the document is available
+        assertEquals(Arrays.asList("urn:0", "urn:2", "urn:0", "urn:1", "urn:2"), ids);
+        assertEquals(3, fromListener.size());
+        assertEquals(doc, fromListener.get(0));
+        assertEquals(3, doc.getRoot().getEntries().size());
+
+        // listeners run without the parse locked, so other threads can cancel it
+        final boolean[] cancelled = new boolean[1];
+        listener = new AsyncParseListener<Feed>() {
+            public void onEntry(Entry entry) {
+                Thread thread = new Thread() {
+                    public void run() {
+                        cancelled[0] |= holder.get().cancel(false);
+                    }
+                };
+                thread.start();
+                try {
+                    thread.join(5000);
+                } catch (InterruptedException e) {
+                }
+            }
+
+            public void onComplete(Document<Feed> document) {
+            }
+
+            public void onError(ParseException e) {
+            }
+        };
+        parse = getParser().parseAsync(null, null, listener);
+        holder.set(parse);
+        parse.write(bytes, 0, bytes.length);
+        assertTrue(cancelled[0]);
+        assertTrue(parse.isCancelled());
+    }
+
 }
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.abdera.test.parser.stax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.xpath.StreamingXPath;
+import org.apache.abdera.xpath.XPathException;
+import org.junit.Test;
+
+public class StreamingXPathTest {
+
+    private static Abdera abdera = new Abdera();
+
+    private static final String FEED =
+        "<feed xmlns='http://www.w3.org/2005/Atom' xmlns:x='urn:x'>" + "<id>urn:feed</id>"
+            + "<entry><id>urn:1</id><title>One <b>bold</b> entry</title>"
+            + "<link rel='edit' href='http://example.org/1'/><link rel='alternate' href='http://example.org/a1'/>"
+            + "</entry>"
+            + "<entry><id>urn:2</id><title>Two<!-- c -->text</title>"
+            + "<link rel='edit' x:type='y' href='http://example.org/2'/>" + "</entry>" + "</feed>";
+
+    private static XMLStreamReader reader(String xml) throws Exception {
+        return XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml));
+    }
+
+    private static StreamingXPath compile(String path) {
+        return StreamingXPath.compile(path, abdera.getXPath().getDefaultNamespaces());
+    }
+
+    private static InputStream stream(String xml) throws Exception {
+        return new ByteArrayInputStream(xml.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testIsStreamable() {
+        assertTrue(StreamingXPath.isStreamable("/a:feed/a:entry/a:link[@rel='edit']/@href"));
+        assertTrue(StreamingXPath.isStreamable("/a:feed/*/a:title/text()"));
+        assertTrue(StreamingXPath.isStreamable("/a:feed/a:entry/a:link[@rel = \"edit\"][@href]"));
+        assertFalse(StreamingXPath.isStreamable("//a:entry"));
+        assertFalse(StreamingXPath.isStreamable("a:feed/a:entry"));
+        assertFalse(StreamingXPath.isStreamable("/a:feed/a:entry[1]"));
+        assertFalse(StreamingXPath.isStreamable("/a:feed/a:entry/.."));
+        assertFalse(StreamingXPath.isStreamable("/a:feed/ancestor::a:entry"));
+        assertFalse(StreamingXPath.isStreamable("count(/a:feed/a:entry)"));
+        assertFalse(StreamingXPath.isStreamable("/a:feed | /a:entry"));
+        try {
+            compile("/a:feed/a:entry[last()]");
+            fail();
+        } catch (XPathException e) {
+        }
+        try {
+            compile("/q:feed");
+            fail();
+        } catch (XPathException e) {
+        }
+    }
+
+    @Test
+    public void testSelectValues() throws Exception {
+        assertEquals(Arrays.asList("http://example.org/1", "http://example.org/2"),
+                     compile("/a:feed/a:entry/a:link[@rel='edit']/@href").selectValues(reader(FEED)));
+        Map<String, String> ns = abdera.getXPath().getDefaultNamespaces();
+        ns.put("x", "urn:x");
+        assertEquals(Arrays.asList("http://example.org/2"), StreamingXPath
+            .compile("/a:feed/a:entry/a:link[@x:type]/@href", ns).selectValues(reader(FEED)));
+        assertEquals(Arrays.asList("One bold entry", "Twotext"), compile("/a:feed/a:entry/a:title")
+            .selectValues(reader(FEED)));
+        assertEquals(Arrays.asList("One ", " entry", "Two", "text"), compile("/a:feed/*/a:title/text()")
+            .selectValues(reader(FEED)));
+        assertEquals(Arrays.asList("urn:feed"), compile("/a:feed/a:id").selectValues(reader(FEED)));
+        assertEquals(0, compile("/feed/id").selectValues(reader(FEED)).size());
+        assertEquals(0, compile("/a:entry/a:id").selectValues(reader(FEED)).size());
+    }
+
+    @Test
+    public void testValueOf() throws Exception {
+        XMLStreamReader reader = reader(FEED);
+        assertEquals("urn:1", compile("/a:feed/a:entry/a:id").valueOf(reader));
+        // reading stops at the end of the first match
+        assertEquals(XMLStreamConstants.END_ELEMENT, reader.getEventType());
+        assertEquals("id", reader.getLocalName());
+        assertTrue(reader.hasNext());
+        assertEquals("", compile("/a:feed/a:entry/a:rights").valueOf(reader(FEED)));
+        assertTrue(compile("/a:feed/a:entry/a:link[@rel='alternate']").booleanValueOf(reader(FEED)));
+        assertFalse(compile("/a:feed/a:entry/a:link[@rel='related']").booleanValueOf(reader(FEED)));
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        Map<String, String> ns = null;
+        assertEquals("http://example.org/1", StreamingXPath
+            .valueOf(abdera, stream(FEED), "/a:feed/a:entry/a:link[@rel='edit']/@href", ns));
+        assertEquals("http://example.org/2", StreamingXPath.valueOf(abdera, stream(FEED),
+                                                                     "/a:feed/a:entry[2]/a:link/@href", ns));
+        assertEquals("2", StreamingXPath.valueOf(abdera, stream(FEED), "count(//a:entry)", ns));
+        List<String> values = StreamingXPath.selectValues(abdera, stream(FEED), "//a:entry/a:title", ns);
+        assertEquals(Arrays.asList("One bold entry", "Twotext"), values);
+        values = StreamingXPath.selectValues(abdera, stream(FEED), "//a:link[@rel='edit']/@href", ns);
+        assertEquals(Arrays.asList("http://example.org/1", "http://example.org/2"), values);
+        assertEquals(values, StreamingXPath.selectValues(abdera, stream(FEED),
+                                                         "/a:feed/a:entry/a:link[@rel='edit']/@href", ns));
+    }
+}